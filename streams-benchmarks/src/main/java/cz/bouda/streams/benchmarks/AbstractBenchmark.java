@@ -0,0 +1,34 @@
+package cz.bouda.streams.benchmarks;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+/*
+ * Shared JMH setup: every benchmark runs for each dataset size from 1e3 to
+ * 1e7 elements, both sequentially and through parallelStream(). Run with
+ * 
+ * 	java -jar target/benchmarks.jar -prof gc
+ * 
+ * to get the allocation rate next to the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public abstract class AbstractBenchmark {
+
+	@Param({ "1000", "10000", "100000", "1000000", "10000000" })
+	public int size;
+
+	@Param({ "sequential", "parallel" })
+	public String mode;
+
+	protected <T> Stream<T> stream(Collection<T> source) {
+		return Datasets.stream(source, "parallel".equals(mode));
+	}
+}
@@ -0,0 +1,91 @@
+package cz.bouda.streams.benchmarks;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.*;
+
+import cz.bouda.streams.collect.*;
+import cz.bouda.streams.domain.Person;
+import cz.bouda.streams.domain.PersonTable;
+
+/*
+ * Pipelines of cz.bouda.streams.Advanced without the console output.
+ */
+public class AdvancedBenchmark extends AbstractBenchmark {
+
+	private List<Person> persons;
+
+	private PersonTable table;
+
+	@Setup
+	public void setup() {
+		persons = Datasets.persons(size);
+		table = PersonTable.of(persons);
+	}
+
+	@Benchmark
+	public List<Person> collector() {
+		return stream(persons).filter(p -> p.name.startsWith("P")).collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public Map<Integer, List<Person>> collector_group_by_age() {
+		return stream(persons).collect(Collectors.groupingBy(p -> p.age));
+	}
+
+	@Benchmark
+	public Map<Integer, List<Person>> collector_group_by_age_dense() {
+		return stream(persons).collect(DenseCollectors.groupingByInt(p -> p.age, 0, 150));
+	}
+
+	@Benchmark
+	public IntObjectMap<List<Person>> collector_group_by_age_int_keys() {
+		return stream(persons).collect(IntMapCollectors.groupingByInt(p -> p.age));
+	}
+
+	@Benchmark
+	public IntHistogram collector_count_by_age_dense() {
+		return stream(persons).collect(DenseCollectors.countingByInt(p -> p.age, 0, 150));
+	}
+
+	@Benchmark
+	public Double collector_average() {
+		return stream(persons).collect(Collectors.averagingInt(p -> p.age));
+	}
+
+	@Benchmark
+	public IntSummaryStatistics summary_statistics() {
+		return stream(persons).collect(Collectors.summarizingInt(p -> p.age));
+	}
+
+	@Benchmark
+	public String joining_into_into_a_single_string() {
+		return stream(persons).filter(p -> p.age >= 18).map(p -> p.name).collect(Collectors.joining(" and ", "In Germany ", " are of legal age."));
+	}
+
+	@Benchmark
+	public Map<Integer, String> grouping_into_a_map() {
+		return stream(persons).collect(Collectors.toMap(p -> p.age, p -> p.name, (name1, name2) -> name1 + ";" + name2));
+	}
+
+	@Benchmark
+	public IntObjectMap<String> grouping_into_a_map_int_keys() {
+		return stream(persons).collect(IntMapCollectors.joiningByInt(p -> p.age, p -> p.name, ";"));
+	}
+
+	@Benchmark
+	public Map<Integer, int[]> table_rows_by_age() {
+		return table.rowsByAge();
+	}
+
+	@Benchmark
+	public double table_average() {
+		return "parallel".equals(mode) ? table.ages().parallel().average().orElse(0) : table.averageAge();
+	}
+
+	@Benchmark
+	public IntSummaryStatistics table_summary_statistics() {
+		return "parallel".equals(mode) ? table.ages().parallel().summaryStatistics() : table.ageStatistics();
+	}
+}
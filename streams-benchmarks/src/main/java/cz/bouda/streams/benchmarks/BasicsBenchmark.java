@@ -0,0 +1,83 @@
+package cz.bouda.streams.benchmarks;
+
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import cz.bouda.streams.pipeline.Pipeline;
+import cz.bouda.streams.spill.*;
+
+/*
+ * Pipelines of cz.bouda.streams.Basics without the console output.
+ */
+public class BasicsBenchmark extends AbstractBenchmark {
+
+	private List<String> strings;
+
+	@Setup
+	public void setup() {
+		strings = Datasets.strings(size);
+	}
+
+	@Benchmark
+	public List<String> sortAndWriteName() {
+		return stream(strings).filter(s -> s.startsWith("A")).map(String::toUpperCase).sorted().collect(Collectors.toList());
+	}
+
+	/*
+	 * A budget of a tenth of the input, so every size spills ten runs.
+	 */
+	@Benchmark
+	public List<String> sortAndWriteNameSpilling() {
+		ExternalSort<String> sort = new ExternalSort<>(Codecs.strings(), Math.max(1, size / 10));
+		try (Stream<String> sorted = sort.sorted(stream(strings).filter(s -> s.startsWith("A")).map(String::toUpperCase), Comparator.naturalOrder())) {
+			return sorted.collect(Collectors.toList());
+		}
+	}
+
+	@Benchmark
+	public boolean anyMatch() {
+		return stream(strings).map(String::toUpperCase).anyMatch(s -> s.startsWith("Z"));
+	}
+
+	@Benchmark
+	public void why_order_matters(Blackhole bh) {
+		stream(strings).map(String::toUpperCase).filter(s -> s.startsWith("A")).forEach(bh::consume);
+	}
+
+	@Benchmark
+	public void why_order_matters_2(Blackhole bh) {
+		stream(strings).filter(s -> s.startsWith("A")).map(String::toUpperCase).forEach(bh::consume);
+	}
+
+	@Benchmark
+	public void why_order_matters_order(Blackhole bh) {
+		stream(strings).sorted((s1, s2) -> s1.compareTo(s2)).filter(s -> s.startsWith("A")).map(String::toUpperCase).forEach(bh::consume);
+	}
+
+	@Benchmark
+	public void why_order_matters_order_2(Blackhole bh) {
+		stream(strings).filter(s -> s.startsWith("A")).sorted((s1, s2) -> s1.compareTo(s2)).map(String::toUpperCase).forEach(bh::consume);
+	}
+
+	@Benchmark
+	public void why_order_matters_pipeline(Blackhole bh) {
+		Pipeline<String, String> pipeline = Pipeline.from(() -> stream(strings))
+				.sorted("sort", (s1, s2) -> s1.compareTo(s2))
+				.transparentMap("map", String::toUpperCase)
+				.filter("filter", s -> Character.toUpperCase(s.charAt(0)) == 'A');
+
+		pipeline.stream().forEach(bh::consume);
+	}
+
+	@Benchmark
+	public void reusing_stream_2(Blackhole bh) {
+		Supplier<Stream<String>> streamSupplier = () -> stream(strings).filter(s -> s.startsWith("A"));
+
+		bh.consume(streamSupplier.get().anyMatch(s -> true));
+		bh.consume(streamSupplier.get().noneMatch(s -> true));
+	}
+}
@@ -0,0 +1,54 @@
+package cz.bouda.streams.benchmarks;
+
+import java.util.*;
+import java.util.stream.Collector;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import cz.bouda.streams.collect.JoiningCollectors;
+import cz.bouda.streams.domain.*;
+import cz.bouda.streams.parallel.FlatteningSpliterator;
+
+/*
+ * Pipelines of cz.bouda.streams.CollectorsLambdas without the console output.
+ * For flatMap the size is the total number of bars, spread over sqrt(size)
+ * foos.
+ */
+public class CollectorsLambdasBenchmark extends AbstractBenchmark {
+
+	private List<Person> persons;
+
+	private List<Foo> foos;
+
+	@Setup
+	public void setup() {
+		persons = Datasets.persons(size);
+		foos = Datasets.foos(size);
+	}
+
+	@Benchmark
+	public String single_upper_string() {
+		Collector<Person, StringJoiner, String> personNameCollector = Collector.of(() -> new StringJoiner(" | "),
+				(j, p) -> j.add(p.name.toUpperCase()),
+				(j1, j2) -> j1.merge(j2),
+				StringJoiner::toString);
+
+		return stream(persons).collect(personNameCollector);
+	}
+
+	@Benchmark
+	public String single_upper_string_chunked() {
+		return stream(persons).collect(JoiningCollectors.joining(p -> p.name, " | ", "", "", true));
+	}
+
+	@Benchmark
+	public void flat_map_basic(Blackhole bh) {
+		stream(foos).flatMap(f -> f.bars.stream()).forEach(b -> bh.consume(b.name));
+	}
+
+	@Benchmark
+	public void flat_map_sized(Blackhole bh) {
+		FlatteningSpliterator.stream(foos, f -> f.bars, "parallel".equals(mode)).forEach(b -> bh.consume(b.name));
+	}
+}
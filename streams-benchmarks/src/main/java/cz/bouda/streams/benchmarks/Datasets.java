@@ -0,0 +1,76 @@
+package cz.bouda.streams.benchmarks;
+
+import java.util.*;
+import java.util.stream.*;
+
+import cz.bouda.streams.domain.*;
+
+/*
+ * Deterministic generators for the benchmark inputs. The same seed always
+ * yields the same dataset, so numbers from two builds are comparable.
+ */
+public final class Datasets {
+
+	private static final long SEED = 42L;
+
+	private static final String[] NAMES = { "Max", "Peter", "Pamela", "David", "Petr", "Ales", "Best", "Milda", "Alena", "Alfred" };
+
+	private static final String[] AUTHORS = { "Adam Bien", "Adam Warski", "Petr Bouda", "Ales Kopecky", "Marek Pribyl" };
+
+	private Datasets() {
+	}
+
+	public static List<Person> persons(int size) {
+		Random random = new Random(SEED);
+		List<Person> persons = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			persons.add(new Person(NAMES[random.nextInt(NAMES.length)] + i, random.nextInt(100)));
+		}
+		return persons;
+	}
+
+	public static List<String> strings(int size) {
+		Random random = new Random(SEED);
+		List<String> strings = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			strings.add(NAMES[random.nextInt(NAMES.length)] + i);
+		}
+		return strings;
+	}
+
+	public static List<Book> books(int size) {
+		Random random = new Random(SEED);
+		List<Author> authors = Stream.of(AUTHORS).map(Author::new).collect(Collectors.toList());
+		Topic[] topics = Topic.values();
+
+		List<Book> books = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			Book book = new Book(topics[random.nextInt(topics.length)]);
+			Collections.shuffle(authors, random);
+			book.setAuthors(new ArrayList<>(authors.subList(0, 1 + random.nextInt(authors.size()))));
+			books.add(book);
+		}
+		return books;
+	}
+
+	/*
+	 * Spreads size bars evenly over sqrt(size) foos, so both the outer and the
+	 * inner streams of flatMap grow with the dataset.
+	 */
+	public static List<Foo> foos(int size) {
+		int parents = Math.max(1, (int) Math.sqrt(size));
+		List<Foo> foos = new ArrayList<>(parents);
+		for (int i = 0; i < parents; i++) {
+			foos.add(new Foo("Foo" + i));
+		}
+		for (int i = 0; i < size; i++) {
+			Foo foo = foos.get(i % parents);
+			foo.bars.add(new Bar("Bar" + i + " <- " + foo.name));
+		}
+		return foos;
+	}
+
+	public static <T> Stream<T> stream(Collection<T> source, boolean parallel) {
+		return parallel ? source.parallelStream() : source.stream();
+	}
+}
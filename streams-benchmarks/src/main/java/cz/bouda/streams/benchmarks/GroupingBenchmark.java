@@ -0,0 +1,96 @@
+package cz.bouda.streams.benchmarks;
+
+import static java.util.stream.Collectors.*;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+import cz.bouda.streams.collect.*;
+import cz.bouda.streams.domain.*;
+import cz.bouda.streams.sketch.*;
+import cz.bouda.streams.spill.*;
+
+/*
+ * Pipelines of cz.bouda.streams.Grouping without the console output.
+ */
+public class GroupingBenchmark extends AbstractBenchmark {
+
+	private List<Book> library;
+
+	@Setup
+	public void setup() {
+		library = Datasets.books(size);
+	}
+
+	@Benchmark
+	public Map<Topic, Long> numberInTopic() {
+		return stream(library).collect(groupingBy(Book::getTopic, counting()));
+	}
+
+	@Benchmark
+	public Map<Topic, Optional<Book>> mostAuthorByTopic() {
+		return stream(library).collect(groupingBy(Book::getTopic, maxBy(Comparator.comparing(b -> b.getAuthors().size()))));
+	}
+
+	@Benchmark
+	public Map<Topic, IntSummaryStatistics> summaryIntStatictics() {
+		return stream(library).collect(groupingBy(Book::getTopic, summarizingInt(b -> b.getAuthors().size())));
+	}
+
+	@Benchmark
+	public Optional<Topic> mostPopularTopic() {
+		return stream(library).collect(groupingBy(Book::getTopic, counting())).entrySet().stream()
+				.max(Map.Entry.comparingByValue())
+				.map(Map.Entry::getKey);
+	}
+
+	@Benchmark
+	public Map<Topic, Long> numberInTopicDense() {
+		return stream(library).collect(DenseCollectors.countingByEnum(Topic.class, Book::getTopic));
+	}
+
+	@Benchmark
+	public Map<Topic, IntSummaryStatistics> summaryIntStatisticsDense() {
+		return stream(library).collect(DenseCollectors.summarizingIntByEnum(Topic.class, Book::getTopic, b -> b.getAuthors().size()));
+	}
+
+	@Benchmark
+	public Map<Topic, List<Book>> mostAuthorsByTopicTop100() {
+		return stream(library).collect(TopCollectors.topPerGroup(Book::getTopic, 100, Comparator.comparing(b -> b.getAuthors().size())));
+	}
+
+	@Benchmark
+	public List<Map.Entry<Topic, Long>> mostPopularTopics() {
+		return stream(library).collect(TopCollectors.mostFrequent(Book::getTopic, 1));
+	}
+
+	@Benchmark
+	public CountMinSketch numberInTopicSketch() {
+		return stream(library).collect(SketchCollectors.counting(Book::getTopic, 0.001, 0.01));
+	}
+
+	@Benchmark
+	public List<Map.Entry<Topic, Long>> mostPopularTopicsSketch() {
+		return stream(library).collect(SketchCollectors.heavyHitters(Book::getTopic, 1));
+	}
+
+	@Benchmark
+	public Long distinctAuthorsSketch() {
+		return stream(library).flatMap(b -> b.getAuthors().stream()).collect(SketchCollectors.countingDistinct(Author::getName));
+	}
+
+	@Benchmark
+	public TDigest authorCountPercentiles() {
+		return stream(library).collect(SketchCollectors.quantiles(b -> b.getAuthors().size()));
+	}
+
+	@Benchmark
+	public long numberInTopicSpilling() {
+		ExternalGrouping<Book> grouping = new ExternalGrouping<>(Codecs.books(), Math.max(1, size / 10));
+		try (Stream<Map.Entry<Topic, Long>> number = grouping.groupingBy(stream(library), Book::getTopic, counting())) {
+			return number.count();
+		}
+	}
+}
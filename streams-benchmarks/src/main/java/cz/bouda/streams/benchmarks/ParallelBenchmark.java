@@ -0,0 +1,68 @@
+package cz.bouda.streams.benchmarks;
+
+import java.util.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import cz.bouda.streams.domain.Person;
+import cz.bouda.streams.parallel.AdaptiveExecution;
+import cz.bouda.streams.sort.RadixSort;
+
+/*
+ * Pipelines of cz.bouda.streams.Parallel without the console output, which
+ * otherwise serializes all worker threads on System.out.
+ */
+public class ParallelBenchmark extends AbstractBenchmark {
+
+	private List<String> strings;
+
+	private List<Person> persons;
+
+	private AdaptiveExecution adaptive;
+
+	@Setup
+	public void setup() {
+		strings = Datasets.strings(size);
+		persons = Datasets.persons(size);
+		adaptive = new AdaptiveExecution();
+	}
+
+	@Benchmark
+	public void print_thread(Blackhole bh) {
+		stream(strings).filter(s -> true).map(String::toUpperCase).forEach(bh::consume);
+	}
+
+	@Benchmark
+	public void print_thread_sorted(Blackhole bh) {
+		stream(strings).filter(s -> true).map(String::toUpperCase).sorted((s1, s2) -> s1.compareTo(s2)).forEach(bh::consume);
+	}
+
+	@Benchmark
+	public void print_thread_sorted_radix(Blackhole bh) {
+		RadixSort.sortedStrings(stream(strings).filter(s -> true).map(String::toUpperCase)).forEach(bh::consume);
+	}
+
+	@Benchmark
+	public void sort_by_age(Blackhole bh) {
+		stream(persons).sorted(Comparator.comparingInt(p -> p.age)).forEach(bh::consume);
+	}
+
+	@Benchmark
+	public void sort_by_age_radix(Blackhole bh) {
+		RadixSort.sortedByInt(stream(persons), p -> p.age, null).forEach(bh::consume);
+	}
+
+	@Benchmark
+	public Integer reduce_parallel() {
+		return stream(persons).reduce(0, (sum, p) -> sum += p.age, (sum1, sum2) -> sum1 + sum2);
+	}
+
+	/*
+	 * Ignores the mode parameter, the plan is chosen per invocation.
+	 */
+	@Benchmark
+	public Integer reduce_adaptive() {
+		return adaptive.execute("reduce", persons, s -> s.reduce(0, (sum, p) -> sum += p.age, (sum1, sum2) -> sum1 + sum2));
+	}
+}
@@ -0,0 +1,61 @@
+package cz.bouda.streams.benchmarks;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.*;
+
+import cz.bouda.streams.collect.ExactSum;
+import cz.bouda.streams.collect.PersonAggregate;
+import cz.bouda.streams.domain.Person;
+
+/*
+ * Pipelines of cz.bouda.streams.Reduce without the console output.
+ * 
+ * Reduce.reduce_2 is left out on purpose: it concatenates every name into the
+ * shared identity, which is quadratic and never finishes at 1e6 elements.
+ * reduce_2_collect measures the linear replacement.
+ */
+public class ReduceBenchmark extends AbstractBenchmark {
+
+	private List<Person> persons;
+
+	@Setup
+	public void setup() {
+		persons = Datasets.persons(size);
+	}
+
+	@Benchmark
+	public Optional<Person> reduce_1() {
+		return stream(persons).reduce((p1, p2) -> p1.age > p2.age ? p1 : p2);
+	}
+
+	@Benchmark
+	public PersonAggregate reduce_2_collect() {
+		return stream(persons).collect(PersonAggregate.aggregating());
+	}
+
+	@Benchmark
+	public Integer reduce_3() {
+		return stream(persons).reduce(0, (sum, p) -> sum += p.age, (sum1, sum2) -> sum1 + sum2);
+	}
+
+	@Benchmark
+	public Optional<BigInteger> reduceAdd() {
+		LongStream values = LongStream.rangeClosed(1, size);
+		if ("parallel".equals(mode)) {
+			values = values.parallel();
+		}
+		return values.mapToObj(BigInteger::valueOf).reduce(BigInteger::add);
+	}
+
+	@Benchmark
+	public BigInteger reduceAddExact() {
+		LongStream values = LongStream.rangeClosed(1, size);
+		if ("parallel".equals(mode)) {
+			values = values.parallel();
+		}
+		return ExactSum.sum(values);
+	}
+}
@@ -0,0 +1,73 @@
+package cz.bouda.streams.benchmarks;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+import cz.bouda.streams.domain.*;
+import cz.bouda.streams.io.*;
+
+/*
+ * Pipelines of cz.bouda.streams.TextRecords, the persons and books written
+ * to temporary CSV and JSON-lines files once per trial. Files.lines() is the
+ * baseline.
+ */
+public class TextRecordsBenchmark extends AbstractBenchmark {
+
+	private Path personsCsv;
+
+	private Path booksJson;
+
+	@Setup
+	public void setup() throws IOException {
+		personsCsv = Files.createTempFile("persons", ".csv");
+		try (BufferedWriter out = Files.newBufferedWriter(personsCsv, StandardCharsets.UTF_8)) {
+			for (Person person : Datasets.persons(size)) {
+				out.write(person.name + "," + person.age + "\n");
+			}
+		}
+		booksJson = Files.createTempFile("books", ".jsonl");
+		try (BufferedWriter out = Files.newBufferedWriter(booksJson, StandardCharsets.UTF_8)) {
+			for (Book book : Datasets.books(size)) {
+				StringJoiner authors = new StringJoiner("\",\"", "[\"", "\"]");
+				book.getAuthors().forEach(a -> authors.add(a.getName()));
+				out.write("{\"topic\":\"" + book.getTopic() + "\",\"authors\":" + authors + "}\n");
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(personsCsv);
+		Files.deleteIfExists(booksJson);
+	}
+
+	@Benchmark
+	public long sumOfAgesFilesLines() throws IOException {
+		try (Stream<String> lines = Files.lines(personsCsv)) {
+			return parallel(lines).mapToLong(line -> Integer.parseInt(line.substring(line.lastIndexOf(',') + 1))).sum();
+		}
+	}
+
+	@Benchmark
+	public long sumOfAges() throws IOException {
+		try (TextRecordFile file = TextRecordFile.open(personsCsv)) {
+			return parallel(file.persons()).mapToLong(p -> p.age).sum();
+		}
+	}
+
+	@Benchmark
+	public long numberInTopicJsonLines() throws IOException {
+		try (TextRecordFile file = TextRecordFile.open(booksJson)) {
+			return parallel(file.books()).filter(b -> b.getTopic() == Topic.MASTERING_LAMBDAS).count();
+		}
+	}
+
+	private <T> Stream<T> parallel(Stream<T> stream) {
+		return "parallel".equals(mode) ? stream.parallel() : stream;
+	}
+}
@@ -0,0 +1,122 @@
+package cz.bouda.streams.processor;
+
+import java.io.*;
+import java.util.*;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.tools.*;
+
+/*
+ * Generates <Class>_Examples for every class annotated with
+ * cz.bouda.streams.trigger.Examples: a registry of its static no-argument
+ * methods (except main) in declaration order, with their @Description text
+ * and a method reference to invoke each one. Private methods cannot be
+ * referenced from the registry and are reported as warnings.
+ * 
+ * Annotations are matched by name, so this module does not depend on the
+ * streams module.
+ */
+@SupportedAnnotationTypes(ExamplesProcessor.EXAMPLES)
+public class ExamplesProcessor extends AbstractProcessor {
+
+	static final String EXAMPLES = "cz.bouda.streams.trigger.Examples";
+
+	static final String DESCRIPTION = "cz.bouda.streams.trigger.Description";
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+		for (TypeElement annotation : annotations) {
+			for (Element element : round.getElementsAnnotatedWith(annotation)) {
+				if (element.getKind() != ElementKind.CLASS || element.getEnclosingElement().getKind() != ElementKind.PACKAGE) {
+					processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "@Examples is only supported on top level classes", element);
+					continue;
+				}
+				try {
+					generate((TypeElement) element);
+				} catch (IOException e) {
+					processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot generate examples: " + e.getMessage(), element);
+				}
+			}
+		}
+		return true;
+	}
+
+	private void generate(TypeElement type) throws IOException {
+		String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		String simpleName = type.getSimpleName().toString();
+		String registry = simpleName + "_Examples";
+
+		StringBuilder entries = new StringBuilder();
+		for (Element member : type.getEnclosedElements()) {
+			if (member.getKind() != ElementKind.METHOD) {
+				continue;
+			}
+			ExecutableElement method = (ExecutableElement) member;
+			String name = method.getSimpleName().toString();
+			if (name.equals("main") || !method.getModifiers().contains(Modifier.STATIC) || !method.getParameters().isEmpty()) {
+				continue;
+			}
+			if (method.getModifiers().contains(Modifier.PRIVATE)) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Private example is skipped", method);
+				continue;
+			}
+			if (entries.length() > 0) {
+				entries.append(",\n");
+			}
+			entries.append("\t\t\t\tnew Example(").append(quote(name)).append(", ").append(quote(description(method))).append(", ")
+					.append(simpleName).append("::").append(name).append(")");
+		}
+
+		JavaFileObject file = processingEnv.getFiler().createSourceFile(packageName + "." + registry, type);
+		try (Writer writer = file.openWriter()) {
+			writer.write("package " + packageName + ";\n\n");
+			writer.write("import java.util.*;\n\n");
+			writer.write("import cz.bouda.streams.trigger.Example;\n");
+			writer.write("import cz.bouda.streams.trigger.ExampleSet;\n\n");
+			writer.write("/*\n * Generated by " + getClass().getName() + " from " + type.getQualifiedName() + ", do not edit.\n */\n");
+			writer.write("public final class " + registry + " implements ExampleSet {\n\n");
+			writer.write("\t@Override\n");
+			writer.write("\tpublic List<Example> examples() {\n");
+			writer.write("\t\treturn Collections.unmodifiableList(Arrays.asList(\n");
+			writer.write(entries.toString());
+			writer.write("));\n");
+			writer.write("\t}\n");
+			writer.write("}\n");
+		}
+	}
+
+	private String description(ExecutableElement method) {
+		for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+			if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(DESCRIPTION)) {
+				for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : mirror.getElementValues().entrySet()) {
+					if (value.getKey().getSimpleName().contentEquals("value")) {
+						return (String) value.getValue().getValue();
+					}
+				}
+				return "";
+			}
+		}
+		return method.getSimpleName().toString();
+	}
+
+	private static String quote(String value) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (char c : value.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20 || c > 0x7e) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
@@ -3,9 +3,13 @@ package cz.bouda.streams;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import cz.bouda.streams.domain.Person;
+import cz.bouda.streams.collect.*;
+import cz.bouda.streams.domain.*;
+import cz.bouda.streams.sketch.*;
+import cz.bouda.streams.trigger.Examples;
 import cz.bouda.streams.trigger.Trigger;
 
+@Examples
 public class Advanced {
 
 	private static List<Person> persons = Arrays.asList(new Person("Max", 18), new Person("Peter", 23), new Person("Pamela", 23), new Person("David", 12));
@@ -34,6 +38,18 @@ public class Advanced {
 		personsByAge.forEach((age, p) -> System.out.format("age %s: %s\n", age, p));
 	}
 
+	/*
+	 * Ages fall into a small known range, so the groups can be kept in an
+	 * array indexed by age. In parallel, partial results are merged bin by bin
+	 * instead of copying HashMaps, and counting goes into shared LongAdders.
+	 */
+	public static void collector_group_by_age_dense() {
+		Map<Integer, List<Person>> personsByAge = persons.parallelStream().collect(DenseCollectors.groupingByInt(p -> p.age, 0, 150));
+
+		personsByAge.forEach((age, p) -> System.out.format("age %s: %s\n", age, p));
+		System.out.println(persons.parallelStream().collect(DenseCollectors.countingByInt(p -> p.age, 0, 150)));
+	}
+
 	public static void collector_average() {
 		Double averageAge = persons.stream().collect(Collectors.averagingInt(p -> p.age));
 
@@ -61,6 +77,12 @@ public class Advanced {
 		System.out.println(phrase);
 	}
 
+	public static void joining_into_into_a_single_string_chunked() {
+		String phrase = persons.parallelStream().filter(p -> p.age >= 18).collect(JoiningCollectors.joining(p -> p.name, " and ", "In Germany ", " are of legal age.", false));
+
+		System.out.println(phrase);
+	}
+
 	/*
 	 * In order to transform the stream elements into a map, we have to specify
 	 * how both the keys and the values should be mapped. Keep in mind that the
@@ -74,4 +96,60 @@ public class Advanced {
 		System.out.println(map);
 	}
 
+	/*
+	 * The same map with int keys that are never boxed. Names are collected
+	 * per age and joined once at the end, instead of concatenating a new
+	 * string on every collision.
+	 */
+	public static void grouping_into_a_map_int_keys() {
+		IntObjectMap<String> map = persons.parallelStream().collect(IntMapCollectors.joiningByInt(p -> p.age, p -> p.name, ";"));
+
+		System.out.println(map);
+
+		IntObjectMap<List<Person>> personsByAge = persons.parallelStream().collect(IntMapCollectors.groupingByInt(p -> p.age));
+		personsByAge.forEach((age, p) -> System.out.format("age %s: %s\n", age, p));
+	}
+
+	/*
+	 * The same aggregations over a column store. Ages are kept in an int[] and
+	 * processed as an IntStream, so no Integer is created per person.
+	 */
+	public static void person_table() {
+		PersonTable table = PersonTable.of(persons);
+
+		System.out.println(table.sumOfAges());
+		System.out.println(table.averageAge());
+		System.out.println(table.ageStatistics());
+		System.out.println(table.groupByAge());
+	}
+
+	/*
+	 * Off heap, persons are rows in direct ByteBuffers. The queries run over
+	 * row numbers and ages and compare names as bytes, so no Person is
+	 * created unless asked for.
+	 */
+	public static void off_heap_store() {
+		OffHeapPersonStore store = new OffHeapPersonStore();
+		store.appendAll(persons);
+
+		System.out.println(store.rows().filter(store.nameStartsWith("P")).mapToObj(store::get).collect(Collectors.toList()));
+		System.out.println(store.ages().parallel().summaryStatistics());
+
+		store.remove(0);
+		store.compact();
+		System.out.println(store.persons().collect(Collectors.toList()));
+	}
+
+	/*
+	 * Summary statistics extended with percentiles. The digest keeps a few
+	 * hundred centroids however many persons there are, and partial digests
+	 * of a parallel stream are merged.
+	 */
+	public static void summary_statistics_percentiles() {
+		TDigest ages = persons.parallelStream().collect(SketchCollectors.quantiles(p -> p.age));
+
+		System.out.println(ages);
+		System.out.println(ages.percentile(50));
+	}
+
 }
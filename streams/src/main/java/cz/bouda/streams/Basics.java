@@ -4,8 +4,13 @@ import java.util.*;
 import java.util.function.Supplier;
 import java.util.stream.*;
 
+import cz.bouda.streams.cache.StreamCache;
+import cz.bouda.streams.pipeline.Pipeline;
+import cz.bouda.streams.spill.*;
+import cz.bouda.streams.trigger.Examples;
 import cz.bouda.streams.trigger.Trigger;
 
+@Examples
 public class Basics {
 
 	private static String[] stringsArray = { "Petr", "Ales", "Best", "Milda", "Alena", "Alfred" };
@@ -20,6 +25,18 @@ public class Basics {
 		strings.stream().filter(s -> s.startsWith("A")).map(String::toUpperCase).sorted().forEach(System.out::println);
 	}
 
+	/*
+	 * sorted() needs the whole stream in memory. With a budget of two
+	 * strings, sorted runs of two are written to temporary files and merged
+	 * back lazily.
+	 */
+	public static void sortAndWriteNameSpilling() {
+		ExternalSort<String> sort = new ExternalSort<>(Codecs.strings(), 2);
+		try (Stream<String> sorted = sort.sorted(strings.stream().filter(s -> s.startsWith("A")).map(String::toUpperCase), Comparator.naturalOrder())) {
+			sorted.forEach(System.out::println);
+		}
+	}
+
 	public static void writeFirst() {
 		strings.stream().findFirst().ifPresent(System.out::println);
 	}
@@ -145,6 +162,24 @@ public class Basics {
 		}).forEach(s -> System.out.println("forEach: " + s));
 	}
 
+	/*
+	 * Instead of relying on everyone writing the optimized order, a Pipeline
+	 * records the stages and moves filters in front of sorts and of maps
+	 * declared transparent for them. The filter here tests the upper cased
+	 * first letter, so its answer is the same before and after toUpperCase.
+	 */
+	public static void why_order_matters_pipeline() {
+		Pipeline<String, String> pipeline = Pipeline.from(() -> Stream.of("d2", "a2", "b1", "b3", "c"))
+				.sorted("sort", Comparator.naturalOrder())
+				.transparentMap("map", String::toUpperCase)
+				.filter("filter", s -> Character.toUpperCase(s.charAt(0)) == 'A');
+
+		System.out.println("declared: " + pipeline.declared());
+		System.out.println("plan: " + pipeline.plan());
+		pipeline.stream().forEach(s -> System.out.println("forEach: " + s));
+		pipeline.stats().forEach(System.out::println);
+	}
+
 	/*
 	 * Java 8 streams cannot be reused. As soon as you call any terminal
 	 * operation the stream is closed:
@@ -172,4 +207,21 @@ public class Basics {
 		streamSupplier.get().anyMatch(s -> true); // ok
 		streamSupplier.get().noneMatch(s -> true); // ok
 	}
+
+	/*
+	 * The supplier above reruns the whole chain for every terminal operation.
+	 * A StreamCache runs it once, keeps the result in an array and streams
+	 * from there, evicting least recently used results beyond its size.
+	 */
+	public static void reusing_stream_3() {
+		StreamCache<String> cache = new StreamCache<>(1000);
+		Supplier<Stream<String>> streamSupplier = () -> cache.stream("a*", () -> Stream.of("d2", "a2", "b1", "b3", "c").filter(s -> {
+			System.out.println("filter: " + s);
+			return s.startsWith("a");
+		}));
+
+		streamSupplier.get().anyMatch(s -> true); // ok
+		streamSupplier.get().noneMatch(s -> true); // ok, served from the cache
+		System.out.println(cache);
+	}
 }
@@ -1,11 +1,16 @@
 package cz.bouda.streams;
 
+import java.io.*;
 import java.util.*;
 import java.util.stream.*;
 
+import cz.bouda.streams.collect.JoiningCollectors;
 import cz.bouda.streams.domain.*;
+import cz.bouda.streams.parallel.FlatteningSpliterator;
+import cz.bouda.streams.trigger.Examples;
 import cz.bouda.streams.trigger.Trigger;
 
+@Examples
 public class CollectorsLambdas {
 
 	private static List<Person> persons = Arrays.asList(new Person("Max", 18), new Person("Peter", 23), new Person("Pamela", 23), new Person("David", 12));
@@ -38,6 +43,26 @@ public class CollectorsLambdas {
 		System.out.println(names);
 	}
 
+	/*
+	 * The same result without an upper cased String per person and without
+	 * StringJoiner: names are upper cased while being copied into chunked
+	 * buffers, which are linked in order when running in parallel and written
+	 * out once at the end.
+	 */
+	public static void single_upper_string_chunked() {
+		String names = persons.parallelStream().collect(JoiningCollectors.joining(p -> p.name, " | ", "", "", true));
+
+		System.out.println(names);
+
+		Writer out = new PrintWriter(System.out);
+		try {
+			JoiningCollectors.writeJoined(persons.stream(), out, p -> p.name, " | ", "", "\n", true);
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	public static void flat_map_basic() {
 		foos.stream().flatMap(f -> f.bars.stream()).forEach(b -> System.out.println(b.name));
 	}
@@ -48,6 +73,18 @@ public class CollectorsLambdas {
 				.forEach(b -> System.out.println(b.name));
 	}
 
+	/*
+	 * flatMap in Java 8 runs every inner stream sequentially, so a parallel
+	 * stream over a few foos with huge bars lists hardly runs in parallel. A
+	 * FlatteningSpliterator knows how many bars there are in total and splits
+	 * them in half by count, also inside a single foo.
+	 */
+	public static void flat_map_sized() {
+		FlatteningSpliterator.stream(foos, f -> f.bars, true)
+				.map(b -> b.name + " [" + Thread.currentThread().getName() + "]")
+				.forEachOrdered(System.out::println);
+	}
+
 	public static void null_checks_bad() {
 		Outer outer = new Outer();
 		if (outer != null && outer.nested != null && outer.nested.inner != null) {
@@ -1,13 +1,19 @@
 package cz.bouda.streams;
 
 
+import cz.bouda.streams.collect.*;
 import cz.bouda.streams.domain.*;
+import cz.bouda.streams.incremental.*;
+import cz.bouda.streams.sketch.*;
+import cz.bouda.streams.spill.*;
 import cz.bouda.streams.trigger.*;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.stream.Collectors.*;
 import java.util.stream.Stream;
 
+@Examples
 public class Grouping {
 
     private static List<Book> library = null;
@@ -68,5 +74,106 @@ public class Grouping {
 		
 		System.out.println(result.get());
  	}
-			
+
+	@Description("Number of book with the same topic, counted into an ordinal indexed array")
+	public static void numberInTopicDense(){
+		Map<Topic, Long> number = library.parallelStream().collect(
+			DenseCollectors.countingByEnum(Topic.class, Book::getTopic));
+
+		number.forEach((k, v)-> System.out.println("- " + k + " " + v));
+	}
+
+	@Description("Example of IntSummaryStatistics per topic, without HashMap merging")
+	public static void summaryIntStatisticsDense(){
+		Map<Topic, IntSummaryStatistics> stats = library.parallelStream().collect(
+			DenseCollectors.summarizingIntByEnum(Topic.class, Book::getTopic, b -> b.getAuthors().size()));
+
+		System.out.println(stats.get(Topic.MASTERING_LAMBDAS));
+	}
+
+	@Description("Two books with most authors by topic, selected with a bounded heap")
+	public static void mostAuthorsByTopicTopK(){
+		Map<Topic, List<Book>> most = library.parallelStream().collect(
+			TopCollectors.topPerGroup(Book::getTopic, () -> new EnumMap<>(Topic.class), 2, Comparator.comparing(b -> b.getAuthors().size())));
+
+		most.forEach((k, v) -> System.out.println("- " + k + " " + v));
+	}
+
+	@Description("Most popular topics in library, without streaming the count map again")
+	public static void mostPopularTopics(){
+		List<Map.Entry<Topic, Long>> result = library.parallelStream().collect(
+			TopCollectors.mostFrequent(Book::getTopic, 1));
+
+		System.out.println(result);
+	}
+
+	@Description("Number of book in topic and statistics kept up to date while books come and go")
+	public static void numberInTopicIncremental(){
+		IncrementalGrouping<Book, Topic> stats = new IncrementalGrouping<>(Topic.class, Book::getTopic, b -> b.getAuthors().size());
+		library.forEach(stats::add);
+		System.out.println(stats.counts());
+
+		stats.remove(library.get(0));
+		System.out.println(stats.counts());
+		System.out.println(stats.statistics().get(Topic.MASTERING_LAMBDAS));
+	}
+
+	@Description("Number of book added per topic in the last 10 seconds")
+	public static void numberInTopicSlidingWindow(){
+		WindowedGrouping<Book, Topic> window = WindowedGrouping.sliding(10, TimeUnit.SECONDS, Topic.class, Book::getTopic, b -> b.getAuthors().size());
+		window.added(library.get(0), 0);
+		window.added(library.get(2), 5_000);
+		System.out.println(window.counts());
+
+		window.advance(12_000);
+		System.out.println(window.counts());
+	}
+
+	@Description("Authorship queries answered from id lists of interned authors")
+	public static void authorshipIndex(){
+		AuthorshipIndex index = AuthorshipIndex.of(library);
+		AuthorRegistry registry = index.getRegistry();
+
+		System.out.println(registry.intern("Adam Bien") == registry.intern(new Author("Adam Bien")));
+		System.out.println(index.booksBy("Adam Bien").size());
+		System.out.println(index.booksByAll("Adam Bien", "Marek Pribyl"));
+		System.out.println(index.coAuthors("Adam Bien"));
+		System.out.println(index.authorsOf(Topic.JAVA_8_IN_ACTION));
+		index.coAuthorPairs().forEach((pair, books) -> System.out.println("- " + registry.get((int) (pair >>> 32)).getName() + " & "
+				+ registry.get((int) (long) pair).getName() + ": " + books));
+	}
+
+	@Description("Grouping queries read from indexes kept up to date on add and remove")
+	public static void indexedLibrary(){
+		IndexedLibrary indexed = new IndexedLibrary();
+		indexed.addAll(library);
+
+		indexed.numberInTopic().forEach((k, v)-> System.out.println("- " + k + " " + v));
+		indexed.mostAuthorByTopic().forEach((k, v) -> System.out.println("- " + k + " " + v));
+		System.out.println(indexed.mostPopularTopic().get());
+
+		indexed.remove(library.get(0));
+		System.out.println(indexed.numberInTopic());
+		System.out.println(indexed.byAuthor("Marek Pribyl"));
+	}
+
+	@Description("Number of book in topic, distinct authors and most popular topics estimated by fixed size sketches")
+	public static void approximateTopics(){
+		CountMinSketch number = library.parallelStream().collect(SketchCollectors.counting(Book::getTopic, 0.01, 0.01));
+		for (Topic topic : Topic.values()) {
+			System.out.println("- " + topic + " ~" + number.estimate(topic));
+		}
+
+		System.out.println(library.parallelStream().flatMap(b -> b.getAuthors().stream()).collect(SketchCollectors.countingDistinct(Author::getName)));
+		System.out.println(library.parallelStream().collect(SketchCollectors.heavyHitters(Book::getTopic, 2)));
+	}
+
+	@Description("Number of book with the same topic, grouped in partitions spilled to disk beyond one book in memory")
+	public static void numberInTopicSpilling(){
+		ExternalGrouping<Book> grouping = new ExternalGrouping<>(Codecs.books(), 1);
+		try (Stream<Map.Entry<Topic, Long>> number = grouping.groupingBy(library.stream(), Book::getTopic, counting())) {
+			number.forEach(e -> System.out.println("- " + e.getKey() + " " + e.getValue()));
+		}
+	}
+
 }
@@ -0,0 +1,64 @@
+package cz.bouda.streams;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import cz.bouda.streams.domain.*;
+import cz.bouda.streams.io.*;
+import cz.bouda.streams.trigger.*;
+
+/*
+ * Instead of loading a dataset into a List before streaming it, records can
+ * be written into a compact binary file and streamed straight from a memory
+ * mapping. The spliterator splits on record boundaries, so parallel streams
+ * scale, and fields are only decoded when a pipeline reads them.
+ */
+@Examples
+public class MappedRecords {
+
+	private static List<Person> persons = Arrays.asList(new Person("Max", 18), new Person("Peter", 23), new Person("Pamela", 23), new Person("David", 12));
+
+	public static void main(String... args) {
+		Trigger.run(MappedRecords.class);
+	}
+
+	@Description("Average age streamed from a mapped file, names are never decoded")
+	public static void personsFromFile() throws IOException {
+		Path file = Files.createTempFile("persons", ".rec");
+		try {
+			try (RecordWriter<Person> writer = RecordWriter.persons(file)) {
+				writer.writeAll(persons);
+			}
+			try (RecordFile records = RecordFile.open(file)) {
+				System.out.println(records.persons().parallel().mapToInt(PersonRecord::age).average().getAsDouble());
+				System.out.println(records.persons().filter(p -> p.age() >= 18).map(PersonRecord::name).collect(Collectors.toList()));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Description("Books streamed from a mapped file share their Author instances")
+	public static void booksFromFile() throws IOException {
+		Author bien = new Author("Adam Bien");
+		Book book1 = new Book(Topic.MASTERING_LAMBDAS);
+		book1.setAuthors(Arrays.asList(bien, new Author("Adam Warski")));
+		Book book2 = new Book(Topic.JAVA_8_IN_ACTION);
+		book2.setAuthors(Arrays.asList(new Author("Adam Bien"), new Author("Marek Pribyl")));
+
+		Path file = Files.createTempFile("books", ".rec");
+		try {
+			try (RecordWriter<Book> writer = RecordWriter.books(file)) {
+				writer.writeAll(Arrays.asList(book1, book2));
+			}
+			try (RecordFile records = RecordFile.open(file)) {
+				System.out.println(records.getAuthors());
+				records.books().parallel().map(BookRecord::toBook).forEachOrdered(System.out::println);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
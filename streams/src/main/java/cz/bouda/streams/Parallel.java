@@ -1,9 +1,15 @@
 package cz.bouda.streams;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import cz.bouda.streams.domain.Person;
+import cz.bouda.streams.parallel.*;
+import cz.bouda.streams.probe.*;
+import cz.bouda.streams.sort.RadixSort;
+import cz.bouda.streams.trigger.Examples;
+import cz.bouda.streams.trigger.Trigger;
 
 /*
  * Streams can be executed in parallel to increase runtime performance on large 
@@ -22,6 +28,7 @@ import cz.bouda.streams.domain.Person;
  * parallel stream operations like reduce and collect need additional computations 
  * (combine operations) which isn't needed when executed sequentially.
  **/
+@Examples
 public class Parallel {
 
 	private static List<Person> persons = Arrays.asList(new Person("Max", 18), new Person("Peter", 23), new Person("Pamela", 23),
@@ -72,4 +79,82 @@ public class Parallel {
 		});
 	}
 
+	/*
+	 * A heavy job like reduce_parallel would occupy the common pool that every
+	 * other parallel stream in the JVM shares. Submitting the pipeline to its
+	 * own pool keeps it isolated, and MinSplitSpliterator stops splitting below
+	 * the given number of elements.
+	 */
+	static void reduce_parallel_isolated() {
+		try (StreamExecutor executor = new StreamExecutor()) {
+			executor.register("reduce", 2);
+
+			int sum = executor.execute("reduce", () -> MinSplitSpliterator.parallelStream(persons, 2).reduce(0, (s, p) -> {
+				System.out.format("accumulator: sum=%s; person=%s [%s]\n", s, p, Thread.currentThread().getName());
+				return s += p.age;
+			}, (sum1, sum2) -> sum1 + sum2));
+
+			System.out.println(sum);
+			executor.stats().forEach(System.out::println);
+		}
+	}
+
+	/*
+	 * Sorting by an extracted key avoids calling a comparator lambda for every
+	 * comparison. Strings are ordered by their first four chars with a radix
+	 * sort, and only strings sharing that prefix are compared, persons are
+	 * sorted by age the same way.
+	 */
+	static void print_thread_sorted_radix() {
+		RadixSort.sortedStrings(Arrays.asList("a1", "a2", "b1", "c2", "c1").parallelStream().map(String::toUpperCase))
+				.forEachOrdered(s -> System.out.format("forEach: %s [%s]\n", s, Thread.currentThread().getName()));
+
+		RadixSort.sortedByInt(persons.parallelStream(), p -> p.age, null).forEachOrdered(System.out::println);
+	}
+
+	/*
+	 * Printing from inside the lambdas serializes all threads on System.out.
+	 * Probes count elements, comparisons, combiner calls and CPU time per
+	 * thread in striped counters instead, and the summary is printed once at
+	 * the end (and recorded as Flight Recorder events when JFR is running).
+	 */
+	static void print_thread_probed() {
+		Probes probes = new Probes("print_thread_sorted", 1);
+		StageProbe filter = probes.stage("filter");
+		StageProbe map = probes.stage("map");
+		StageProbe sort = probes.stage("sort");
+		StageProbe reduce = probes.stage("reduce");
+
+		int length = Arrays.asList("a1", "a2", "b1", "c2", "c1").parallelStream()
+				.filter(filter.filter(s -> true))
+				.map(map.map(String::toUpperCase))
+				.sorted(sort.comparator(String::compareTo))
+				.reduce(0, reduce.accumulator((sum, s) -> sum + s.length()), reduce.combiner(Integer::sum));
+
+		System.out.println(length);
+		System.out.println(probes);
+		probes.commit();
+	}
+
+	/*
+	 * Instead of a hardcoded parallelStream(), sequential runs of a named
+	 * pipeline are timed and the next run goes parallel only when its source
+	 * is big enough for the measured cost per element. The four persons here
+	 * stay sequential, the first million is measured sequentially and the
+	 * next ones are split into chunks sized by that cost.
+	 */
+	static void reduce_adaptive() {
+		AdaptiveExecution adaptive = new AdaptiveExecution();
+
+		int sum = adaptive.execute("sumOfAges", persons, s -> s.reduce(0, (total, p) -> total += p.age, (sum1, sum2) -> sum1 + sum2));
+		System.out.println(sum);
+		System.out.println(adaptive.lastPlan("sumOfAges"));
+
+		List<Person> many = Collections.nCopies(1_000_000, persons.get(0));
+		for (int i = 0; i < 3; i++) {
+			adaptive.execute("sumOfAges", many, s -> s.reduce(0, (total, p) -> total += p.age, (sum1, sum2) -> sum1 + sum2));
+			System.out.println(adaptive.lastPlan("sumOfAges"));
+		}
+	}
+
 }
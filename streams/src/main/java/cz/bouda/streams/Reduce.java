@@ -1,7 +1,10 @@
 package cz.bouda.streams;
 
+import cz.bouda.streams.collect.ExactSum;
+import cz.bouda.streams.collect.PersonAggregate;
 import cz.bouda.streams.domain.Person;
 import cz.bouda.streams.trigger.Description;
+import cz.bouda.streams.trigger.Examples;
 import cz.bouda.streams.trigger.Trigger;
 import java.math.BigInteger;
 import java.util.Arrays;
@@ -10,6 +13,7 @@ import java.util.Optional;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
+@Examples
 public class Reduce {
 
 	private static List<Person> persons
@@ -54,6 +58,20 @@ public class Reduce {
 		System.out.format("name=%s; age=%s", result.name, result.age);
 	}
 
+	/*
+	 * reduce_2 mutates its identity Person, which is shared by all threads of
+	 * a parallel stream, and concatenates names quadratically. A mutable
+	 * reduction with collect gives every thread its own container and
+	 * combines them at the end, so parallel and sequential agree:
+	 */
+	public static void reduce_2_collect() {
+		Person result = persons
+				.parallelStream()
+				.collect(PersonAggregate.collector());
+
+		System.out.format("name=%s; age=%s\n", result.name, result.age);
+	}
+
 	/*
 	 * The third reduce method accepts three parameters: an identity value, a
 	 * BiFunction accumulator and a combiner function of type BinaryOperator.
@@ -108,5 +126,24 @@ public class Reduce {
 		
 		System.out.println("Result: " + bigIntegerSum);
 	}
-	
+
+	@Description("Example summing exactly into two longs, one BigInteger at the end")
+	public static void reduceAddExact(){
+		BigInteger sum = ExactSum.sum(LongStream.of(Long.MAX_VALUE, 2, 3).parallel());
+
+		System.out.println("Result: " + sum);
+
+		Optional<BigInteger> bigIntegerSum = Stream.of(BigInteger.ONE, BigInteger.TEN.pow(30))
+			.collect(ExactSum.reducing());
+
+		System.out.println("Result: " + bigIntegerSum);
+	}
+
+	@Description("Example summing exactly with Default")
+	public static void reduceAddWithDefaultExact(){
+		BigInteger bigIntegerSum = BigInteger.valueOf(5).add(ExactSum.sum(LongStream.of()));
+
+		System.out.println("Result: " + bigIntegerSum);
+	}
+
 }
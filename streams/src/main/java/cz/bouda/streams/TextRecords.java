@@ -0,0 +1,59 @@
+package cz.bouda.streams;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import cz.bouda.streams.domain.*;
+import cz.bouda.streams.io.*;
+import cz.bouda.streams.trigger.*;
+
+import static java.util.stream.Collectors.*;
+
+/*
+ * The pipelines of Advanced and Grouping fed from CSV and JSON-lines files.
+ * The files are split at line boundaries and the chunks parsed in parallel,
+ * straight from a memory mapping.
+ */
+@Examples
+public class TextRecords {
+
+	public static void main(String... args) {
+		Trigger.run(TextRecords.class);
+	}
+
+	@Description("Advanced.collector() over persons read from CSV")
+	public static void personsFromCsv() throws IOException {
+		Path file = Files.createTempFile("persons", ".csv");
+		try {
+			Files.write(file, Arrays.asList("Max,18", "Peter,23", "Pamela,23", "\"David, Jr.\",12"), StandardCharsets.UTF_8);
+			try (TextRecordFile persons = TextRecordFile.open(file)) {
+				List<Person> filtered = persons.persons().parallel().filter(p -> p.name.startsWith("P")).collect(Collectors.toList());
+
+				System.out.println(filtered);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Description("Grouping.numberInTopic() over books read from JSON lines")
+	public static void booksFromJsonLines() throws IOException {
+		Path file = Files.createTempFile("books", ".jsonl");
+		try {
+			Files.write(file, Arrays.asList(
+					"{\"topic\":\"MASTERING_LAMBDAS\",\"authors\":[\"Adam Bien\",\"Adam Warski\"]}",
+					"{\"topic\":\"JAVA_8_IN_ACTION\",\"authors\":[\"Adam Bien\",\"Marek Pribyl\"]}",
+					"{\"topic\":\"MASTERING_LAMBDAS\",\"authors\":[\"Marek Pribyl\"],\"pages\":312}"), StandardCharsets.UTF_8);
+			try (TextRecordFile library = TextRecordFile.open(file)) {
+				Map<Topic, Long> number = library.books().parallel().collect(groupingBy(Book::getTopic, counting()));
+
+				number.forEach((k, v) -> System.out.println("- " + k + " " + v));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package cz.bouda.streams.cache;
+
+import java.lang.reflect.Array;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.*;
+
+/*
+ * Memoizes stream sources. The first request for a key runs the supplied
+ * pipeline once and keeps its elements in a plain array (int[], long[] and
+ * double[] for the primitive streams); every later request streams from that
+ * array instead of rerunning the upstream chain, see Basics.reusing_stream_2.
+ * 
+ * The cache holds at most maxElements elements in total and evicts the least
+ * recently used entries to stay below it. A result larger than the whole
+ * budget is streamed but not cached. Two threads missing the same key at once
+ * may both compute it, the later result wins.
+ */
+public class StreamCache<K> {
+
+	private final long maxElements;
+
+	private final LinkedHashMap<K, Object> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long cachedElements;
+
+	private long hits;
+
+	private long misses;
+
+	private long evictions;
+
+	public StreamCache(long maxElements) {
+		if (maxElements < 1) {
+			throw new IllegalArgumentException("maxElements must be positive: " + maxElements);
+		}
+		this.maxElements = maxElements;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> Stream<T> stream(K key, Supplier<? extends Stream<T>> source) {
+		Object[] values = (Object[]) lookup(key, Object[].class);
+		if (values == null) {
+			values = source.get().toArray();
+			store(key, values, values.length);
+		}
+		return (Stream<T>) Arrays.stream(values);
+	}
+
+	public IntStream ints(K key, Supplier<? extends IntStream> source) {
+		int[] values = (int[]) lookup(key, int[].class);
+		if (values == null) {
+			values = source.get().toArray();
+			store(key, values, values.length);
+		}
+		return Arrays.stream(values);
+	}
+
+	public LongStream longs(K key, Supplier<? extends LongStream> source) {
+		long[] values = (long[]) lookup(key, long[].class);
+		if (values == null) {
+			values = source.get().toArray();
+			store(key, values, values.length);
+		}
+		return Arrays.stream(values);
+	}
+
+	public DoubleStream doubles(K key, Supplier<? extends DoubleStream> source) {
+		double[] values = (double[]) lookup(key, double[].class);
+		if (values == null) {
+			values = source.get().toArray();
+			store(key, values, values.length);
+		}
+		return Arrays.stream(values);
+	}
+
+	public synchronized void invalidate(K key) {
+		Object removed = entries.remove(key);
+		if (removed != null) {
+			cachedElements -= length(removed);
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		cachedElements = 0;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getCachedElements() {
+		return cachedElements;
+	}
+
+	public synchronized int getEntries() {
+		return entries.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "StreamCache [ entries=" + entries.size() + ", elements=" + cachedElements + "/" + maxElements + ", hits=" + hits + ", misses="
+				+ misses + ", evictions=" + evictions + " ]";
+	}
+
+	private synchronized Object lookup(K key, Class<?> type) {
+		Object values = entries.get(key);
+		if (values == null) {
+			misses++;
+			return null;
+		}
+		if (!type.isInstance(values)) {
+			throw new IllegalStateException("Key " + key + " is cached as " + values.getClass().getSimpleName() + ", not " + type.getSimpleName());
+		}
+		hits++;
+		return values;
+	}
+
+	private synchronized void store(K key, Object values, int length) {
+		if (length > maxElements) {
+			return;
+		}
+		Object previous = entries.put(key, values);
+		if (previous != null) {
+			cachedElements -= length(previous);
+		}
+		cachedElements += length;
+
+		Iterator<Map.Entry<K, Object>> eldest = entries.entrySet().iterator();
+		while (cachedElements > maxElements) {
+			Map.Entry<K, Object> entry = eldest.next();
+			cachedElements -= length(entry.getValue());
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	private static int length(Object values) {
+		return Array.getLength(values);
+	}
+}
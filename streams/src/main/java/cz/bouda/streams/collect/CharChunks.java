@@ -0,0 +1,162 @@
+package cz.bouda.streams.collect;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/*
+ * Append-only text buffer made of fixed size char[] chunks. Growing never
+ * copies what was written before, and two buffers are concatenated by
+ * linking their chunks, which is what a parallel joining collector needs.
+ */
+class CharChunks {
+
+	static final int CHUNK_SIZE = 8192;
+
+	private final List<char[]> chunks = new ArrayList<>();
+
+	private final List<Integer> lengths = new ArrayList<>();
+
+	private char[] current;
+
+	private int position;
+
+	private long length;
+
+	private long elements;
+
+	void append(char c) {
+		if (current == null || position == current.length) {
+			next();
+		}
+		current[position++] = c;
+		length++;
+	}
+
+	void append(CharSequence value) {
+		for (int i = 0, n = value.length(); i < n; i++) {
+			append(value.charAt(i));
+		}
+	}
+
+	/*
+	 * Upper cases by Locale.ROOT rules, the same as
+	 * value.toString().toUpperCase(Locale.ROOT) whatever the default locale
+	 * is. ASCII is mapped in place, anything else goes through
+	 * toUpperCase(Locale.ROOT) so that characters like '\u00df' still expand
+	 * to "SS".
+	 */
+	void appendUpperCase(CharSequence value) {
+		for (int i = 0, n = value.length(); i < n; i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				append(c >= 'a' && c <= 'z' ? (char) (c - 32) : c);
+			} else {
+				int end = Character.isHighSurrogate(c) && i + 1 < n ? i + 2 : i + 1;
+				append(value.subSequence(i, end).toString().toUpperCase(Locale.ROOT));
+				i = end - 1;
+			}
+		}
+	}
+
+	/*
+	 * Elements are counted by the collectors, so they know where a delimiter
+	 * is due.
+	 */
+	long elements() {
+		return elements;
+	}
+
+	void element() {
+		elements++;
+	}
+
+	long length() {
+		return length;
+	}
+
+	void appendAll(CharChunks other) {
+		if (other.length == 0) {
+			elements += other.elements;
+			return;
+		}
+		seal();
+		chunks.addAll(other.chunks);
+		lengths.addAll(other.lengths);
+		current = other.current;
+		position = other.position;
+		length += other.length;
+		elements += other.elements;
+	}
+
+	void writeTo(Writer writer) throws IOException {
+		for (int i = 0; i < chunks.size(); i++) {
+			writer.write(chunks.get(i), 0, lengths.get(i));
+		}
+		if (current != null) {
+			writer.write(current, 0, position);
+		}
+	}
+
+	void writeTo(StringBuilder builder) {
+		for (int i = 0; i < chunks.size(); i++) {
+			builder.append(chunks.get(i), 0, lengths.get(i));
+		}
+		if (current != null) {
+			builder.append(current, 0, position);
+		}
+	}
+
+	/*
+	 * Encodes into the buffer and returns the number of bytes written. Fails
+	 * with BufferOverflowException when the buffer is too small.
+	 */
+	int encodeTo(ByteBuffer target, Charset charset) {
+		int start = target.position();
+		CharsetEncoder encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		for (int i = 0; i < chunks.size(); i++) {
+			encode(encoder, CharBuffer.wrap(chunks.get(i), 0, lengths.get(i)), target, false);
+		}
+		encode(encoder, current == null ? CharBuffer.allocate(0) : CharBuffer.wrap(current, 0, position), target, true);
+		checkResult(encoder.flush(target));
+		return target.position() - start;
+	}
+
+	/*
+	 * Drops the content but keeps the current chunk for reuse.
+	 */
+	void clear() {
+		chunks.clear();
+		lengths.clear();
+		position = 0;
+		length = 0;
+	}
+
+	private void encode(CharsetEncoder encoder, CharBuffer chars, ByteBuffer target, boolean last) {
+		checkResult(encoder.encode(chars, target, last));
+	}
+
+	private void checkResult(CoderResult result) {
+		if (result.isOverflow()) {
+			throw new BufferOverflowException();
+		}
+	}
+
+	private void next() {
+		seal();
+		current = new char[CHUNK_SIZE];
+		position = 0;
+	}
+
+	private void seal() {
+		if (current != null && position > 0) {
+			chunks.add(current);
+			lengths.add(position);
+		}
+		current = null;
+		position = 0;
+	}
+}
@@ -0,0 +1,149 @@
+package cz.bouda.streams.collect;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.Collector;
+
+/*
+ * Grouping collectors for keys that map to a small dense range: enum
+ * ordinals and ints with known bounds. Instead of a HashMap per thread they
+ * use plain arrays indexed by the key, so accumulating does not box and
+ * combining two partial results costs O(number of keys), not O(elements).
+ */
+public final class DenseCollectors {
+
+	private DenseCollectors() {
+	}
+
+	/*
+	 * Same result as groupingBy(classifier, counting()), but only keys that
+	 * occurred are present and the map is an EnumMap.
+	 */
+	public static <T, E extends Enum<E>> Collector<T, long[], EnumMap<E, Long>> countingByEnum(Class<E> type,
+			Function<? super T, E> classifier) {
+		E[] keys = type.getEnumConstants();
+		return Collector.of(
+				() -> new long[keys.length],
+				(counts, t) -> counts[classifier.apply(t).ordinal()]++,
+				(left, right) -> {
+					for (int i = 0; i < left.length; i++) {
+						left[i] += right[i];
+					}
+					return left;
+				},
+				counts -> {
+					EnumMap<E, Long> result = new EnumMap<>(type);
+					for (int i = 0; i < counts.length; i++) {
+						if (counts[i] > 0) {
+							result.put(keys[i], counts[i]);
+						}
+					}
+					return result;
+				});
+	}
+
+	/*
+	 * Same result as groupingBy(classifier, summarizingInt(mapper)).
+	 */
+	public static <T, E extends Enum<E>> Collector<T, IntSummaryStatistics[], EnumMap<E, IntSummaryStatistics>> summarizingIntByEnum(
+			Class<E> type, Function<? super T, E> classifier, ToIntFunction<? super T> mapper) {
+		E[] keys = type.getEnumConstants();
+		return Collector.of(
+				() -> new IntSummaryStatistics[keys.length],
+				(stats, t) -> {
+					int ordinal = classifier.apply(t).ordinal();
+					if (stats[ordinal] == null) {
+						stats[ordinal] = new IntSummaryStatistics();
+					}
+					stats[ordinal].accept(mapper.applyAsInt(t));
+				},
+				(left, right) -> {
+					for (int i = 0; i < left.length; i++) {
+						if (left[i] == null) {
+							left[i] = right[i];
+						} else if (right[i] != null) {
+							left[i].combine(right[i]);
+						}
+					}
+					return left;
+				},
+				stats -> {
+					EnumMap<E, IntSummaryStatistics> result = new EnumMap<>(type);
+					for (int i = 0; i < stats.length; i++) {
+						if (stats[i] != null) {
+							result.put(keys[i], stats[i]);
+						}
+					}
+					return result;
+				});
+	}
+
+	/*
+	 * Counts int keys in [min, max] into one shared IntHistogram. The collector
+	 * is CONCURRENT and UNORDERED, so a parallel stream never creates or
+	 * combines partial results; the LongAdder bins absorb the contention.
+	 */
+	public static <T> Collector<T, IntHistogram, IntHistogram> countingByInt(ToIntFunction<? super T> classifier, int min, int max) {
+		return Collector.of(
+				() -> new IntHistogram(min, max),
+				(histogram, t) -> histogram.increment(classifier.applyAsInt(t)),
+				(left, right) -> {
+					left.addAll(right);
+					return left;
+				},
+				Collector.Characteristics.CONCURRENT,
+				Collector.Characteristics.UNORDERED);
+	}
+
+	/*
+	 * Same result as groupingBy(classifier) for int keys in [min, max], keys in
+	 * ascending order and encounter order kept within a group.
+	 */
+	public static <T> Collector<T, ?, SortedMap<Integer, List<T>>> groupingByInt(ToIntFunction<? super T> classifier, int min, int max) {
+		int bins = checkedRange(min, max);
+		return Collector.<T, List<T>[], SortedMap<Integer, List<T>>> of(
+				() -> newBins(bins),
+				(groups, t) -> {
+					int key = classifier.applyAsInt(t);
+					if (key < min || key > max) {
+						throw new IllegalArgumentException("Key " + key + " out of range [" + min + ", " + max + "]");
+					}
+					if (groups[key - min] == null) {
+						groups[key - min] = new ArrayList<>();
+					}
+					groups[key - min].add(t);
+				},
+				(left, right) -> {
+					for (int i = 0; i < left.length; i++) {
+						if (left[i] == null) {
+							left[i] = right[i];
+						} else if (right[i] != null) {
+							left[i].addAll(right[i]);
+						}
+					}
+					return left;
+				},
+				groups -> {
+					SortedMap<Integer, List<T>> result = new TreeMap<>();
+					for (int i = 0; i < groups.length; i++) {
+						if (groups[i] != null) {
+							result.put(min + i, groups[i]);
+						}
+					}
+					return result;
+				});
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static <T> List<T>[] newBins(int bins) {
+		return new List[bins];
+	}
+
+	private static int checkedRange(int min, int max) {
+		long range = (long) max - min + 1;
+		if (max < min || range > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Invalid range [" + min + ", " + max + "]");
+		}
+		return (int) range;
+	}
+}
@@ -0,0 +1,134 @@
+package cz.bouda.streams.collect;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.function.*;
+import java.util.stream.*;
+
+/*
+ * Exact sum of longs without a BigInteger per element. Values are added into
+ * a 128 bit two's complement accumulator of two longs: the low word takes
+ * the addition, the high word only changes by the sign and the unsigned
+ * carry, so the sum stays exact past Long.MAX_VALUE for up to 2^63 values.
+ * BigInteger elements that fit a long take the same path, wider ones are
+ * summed into a BigInteger. A single BigInteger is created at the end.
+ * 
+ * Combining two partial sums is a constant time 128 bit addition, so the
+ * combine tree of a parallel stream, which mirrors its split tree, never
+ * builds up a chain of BigInteger additions.
+ */
+public class ExactSum implements LongConsumer, Consumer<BigInteger> {
+
+	private long low;
+
+	private long high;
+
+	private BigInteger wide;
+
+	private long count;
+
+	/*
+	 * Same result as mapToObj(BigInteger::valueOf).reduce(BigInteger.ZERO, BigInteger::add).
+	 */
+	public static BigInteger sum(LongStream values) {
+		return of(values).toBigInteger();
+	}
+
+	public static ExactSum of(LongStream values) {
+		return values.collect(ExactSum::new, ExactSum::accept, ExactSum::combine);
+	}
+
+	/*
+	 * Same result as reduce(BigInteger.ZERO, BigInteger::add).
+	 */
+	public static Collector<BigInteger, ExactSum, BigInteger> summing() {
+		return Collector.of(ExactSum::new, ExactSum::accept, ExactSum::combine, ExactSum::toBigInteger, Collector.Characteristics.UNORDERED);
+	}
+
+	/*
+	 * Same result as reduce(BigInteger::add), empty for an empty stream.
+	 */
+	public static Collector<BigInteger, ExactSum, Optional<BigInteger>> reducing() {
+		return Collector.of(ExactSum::new, ExactSum::accept, ExactSum::combine, ExactSum::toOptional, Collector.Characteristics.UNORDERED);
+	}
+
+	/*
+	 * Same result as summingLong(mapper), except that the sum cannot
+	 * overflow.
+	 */
+	public static <T> Collector<T, ExactSum, BigInteger> summingLong(ToLongFunction<? super T> mapper) {
+		return Collector.of(ExactSum::new, (sum, t) -> sum.accept(mapper.applyAsLong(t)), ExactSum::combine, ExactSum::toBigInteger,
+				Collector.Characteristics.UNORDERED);
+	}
+
+	@Override
+	public void accept(long value) {
+		add(value);
+		count++;
+	}
+
+	@Override
+	public void accept(BigInteger value) {
+		if (value.bitLength() < 64) {
+			add(value.longValue());
+		} else {
+			wide = wide == null ? value : wide.add(value);
+		}
+		count++;
+	}
+
+	public ExactSum combine(ExactSum other) {
+		long sum = low + other.low;
+		high += other.high + (Long.compareUnsigned(sum, low) < 0 ? 1 : 0);
+		low = sum;
+		if (other.wide != null) {
+			wide = wide == null ? other.wide : wide.add(other.wide);
+		}
+		count += other.count;
+		return this;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/*
+	 * True while the sum fits a long.
+	 */
+	public boolean fitsLong() {
+		return wide == null && high == low >> 63;
+	}
+
+	/*
+	 * Throws ArithmeticException when the sum does not fit a long.
+	 */
+	public long longValueExact() {
+		if (!fitsLong()) {
+			throw new ArithmeticException("Sum does not fit a long: " + toBigInteger());
+		}
+		return low;
+	}
+
+	public BigInteger toBigInteger() {
+		BigInteger sum = high == low >> 63
+				? BigInteger.valueOf(low)
+				: new BigInteger(ByteBuffer.allocate(16).putLong(high).putLong(low).array());
+		return wide == null ? sum : sum.add(wide);
+	}
+
+	public Optional<BigInteger> toOptional() {
+		return count == 0 ? Optional.empty() : Optional.of(toBigInteger());
+	}
+
+	private void add(long value) {
+		long sum = low + value;
+		high += (value >> 63) + (Long.compareUnsigned(sum, low) < 0 ? 1 : 0);
+		low = sum;
+	}
+
+	@Override
+	public String toString() {
+		return "ExactSum [ sum=" + toBigInteger() + ", count=" + count + " ]";
+	}
+}
@@ -0,0 +1,86 @@
+package cz.bouda.streams.collect;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Counts per int key in a fixed range [min, max], backed by striped
+ * LongAdder bins, so many threads can count into it at the same time.
+ */
+public class IntHistogram {
+
+	private final int min;
+
+	private final LongAdder[] bins;
+
+	public IntHistogram(int min, int max) {
+		if (max < min) {
+			throw new IllegalArgumentException("max " + max + " < min " + min);
+		}
+		long range = (long) max - min + 1;
+		if (range > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Range too large: [" + min + ", " + max + "]");
+		}
+		this.min = min;
+		this.bins = new LongAdder[(int) range];
+		for (int i = 0; i < bins.length; i++) {
+			bins[i] = new LongAdder();
+		}
+	}
+
+	public void increment(int key) {
+		bins[index(key)].increment();
+	}
+
+	public void add(int key, long count) {
+		bins[index(key)].add(count);
+	}
+
+	public void addAll(IntHistogram other) {
+		for (int i = 0; i < other.bins.length; i++) {
+			long count = other.bins[i].sum();
+			if (count > 0) {
+				add(other.min + i, count);
+			}
+		}
+	}
+
+	public long count(int key) {
+		return bins[index(key)].sum();
+	}
+
+	public int getMin() {
+		return min;
+	}
+
+	public int getMax() {
+		return min + bins.length - 1;
+	}
+
+	/*
+	 * Only the non-empty bins, keys in ascending order.
+	 */
+	public SortedMap<Integer, Long> toMap() {
+		SortedMap<Integer, Long> map = new TreeMap<>();
+		for (int i = 0; i < bins.length; i++) {
+			long count = bins[i].sum();
+			if (count > 0) {
+				map.put(min + i, count);
+			}
+		}
+		return map;
+	}
+
+	private int index(int key) {
+		int index = key - min;
+		if (index < 0 || index >= bins.length) {
+			throw new IllegalArgumentException("Key " + key + " out of range [" + min + ", " + getMax() + "]");
+		}
+		return index;
+	}
+
+	@Override
+	public String toString() {
+		return toMap().toString();
+	}
+}
@@ -0,0 +1,81 @@
+package cz.bouda.streams.collect;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.Collector;
+
+/*
+ * toMap and groupingBy for int keys of any range, collected into
+ * IntObjectMaps: keys are never boxed and no HashMap.Node is created per
+ * element. Where the merge function of toMap would concatenate strings on
+ * every collision, joiningByInt keeps the values of a key in a list and
+ * joins each list once in the finisher. For keys in a small known range,
+ * DenseCollectors is cheaper still.
+ */
+public final class IntMapCollectors {
+
+	private IntMapCollectors() {
+	}
+
+	/*
+	 * Same groups as groupingBy(classifier), encounter order kept within a
+	 * group.
+	 */
+	public static <T> Collector<T, ?, IntObjectMap<List<T>>> groupingByInt(ToIntFunction<? super T> classifier) {
+		return groupingByInt(classifier, Function.identity());
+	}
+
+	/*
+	 * Same groups as groupingBy(classifier, mapping(mapper, toList())).
+	 */
+	public static <T, V> Collector<T, ?, IntObjectMap<List<V>>> groupingByInt(ToIntFunction<? super T> classifier,
+			Function<? super T, ? extends V> mapper) {
+		return Collector.<T, IntObjectMap<List<V>>> of(
+				IntObjectMap::new,
+				(groups, t) -> groups.computeIfAbsent(classifier.applyAsInt(t), key -> new ArrayList<>()).add(mapper.apply(t)),
+				IntMapCollectors::mergeGroups);
+	}
+
+	/*
+	 * Same as toMap(keyMapper, valueMapper), throws IllegalStateException on
+	 * a duplicate key.
+	 */
+	public static <T, V> Collector<T, ?, IntObjectMap<V>> toIntMap(ToIntFunction<? super T> keyMapper, Function<? super T, ? extends V> valueMapper) {
+		return toIntMap(keyMapper, valueMapper, (left, right) -> {
+			throw new IllegalStateException("Duplicate key, values " + left + " and " + right);
+		});
+	}
+
+	public static <T, V> Collector<T, ?, IntObjectMap<V>> toIntMap(ToIntFunction<? super T> keyMapper, Function<? super T, ? extends V> valueMapper,
+			BinaryOperator<V> mergeFunction) {
+		return Collector.<T, IntObjectMap<V>> of(
+				IntObjectMap::new,
+				(map, t) -> map.merge(keyMapper.applyAsInt(t), valueMapper.apply(t), mergeFunction),
+				(left, right) -> {
+					right.forEachUnordered((key, value) -> left.merge(key, value, mergeFunction));
+					return left;
+				});
+	}
+
+	/*
+	 * Same result as toMap(keyMapper, mapper, (a, b) -> a + delimiter + b),
+	 * values joined in encounter order, but every value is copied once
+	 * instead of once per collision.
+	 */
+	public static <T> Collector<T, ?, IntObjectMap<String>> joiningByInt(ToIntFunction<? super T> keyMapper,
+			Function<? super T, ? extends CharSequence> mapper, CharSequence delimiter) {
+		return Collector.<T, IntObjectMap<List<CharSequence>>, IntObjectMap<String>> of(
+				IntObjectMap::new,
+				(groups, t) -> groups.computeIfAbsent(keyMapper.applyAsInt(t), key -> new ArrayList<>(2)).add(mapper.apply(t)),
+				IntMapCollectors::mergeGroups,
+				groups -> groups.mapValues(values -> values.size() == 1 ? values.get(0).toString() : String.join(delimiter, values)));
+	}
+
+	private static <V> IntObjectMap<List<V>> mergeGroups(IntObjectMap<List<V>> left, IntObjectMap<List<V>> right) {
+		right.forEachUnordered((key, values) -> left.merge(key, values, (l, r) -> {
+			l.addAll(r);
+			return l;
+		}));
+		return left;
+	}
+}
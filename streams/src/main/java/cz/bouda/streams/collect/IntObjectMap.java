@@ -0,0 +1,192 @@
+package cz.bouda.streams.collect;
+
+import java.util.*;
+import java.util.function.*;
+
+/*
+ * Map from int keys to non-null values with open addressing: keys and values
+ * live in two parallel arrays probed linearly, so an entry costs two array
+ * slots instead of a HashMap.Node and an Integer. Not thread safe; parallel
+ * collectors build one map per thread and merge them.
+ */
+public class IntObjectMap<V> {
+
+	public interface Entry<V> {
+		void accept(int key, V value);
+	}
+
+	private int[] keys;
+
+	private Object[] values;
+
+	private int size;
+
+	private int mask;
+
+	public IntObjectMap() {
+		this(16);
+	}
+
+	public IntObjectMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+		keys = new int[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean containsKey(int key) {
+		return values[slot(key)] != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		return (V) values[slot(key)];
+	}
+
+	public V getOrDefault(int key, V defaultValue) {
+		V value = get(key);
+		return value != null ? value : defaultValue;
+	}
+
+	/*
+	 * The previous value, null if there was none.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		Objects.requireNonNull(value);
+		int slot = slot(key);
+		V previous = (V) values[slot];
+		keys[slot] = key;
+		values[slot] = value;
+		if (previous == null) {
+			added();
+		}
+		return previous;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V computeIfAbsent(int key, IntFunction<? extends V> factory) {
+		int slot = slot(key);
+		V value = (V) values[slot];
+		if (value == null) {
+			value = Objects.requireNonNull(factory.apply(key));
+			keys[slot] = key;
+			values[slot] = value;
+			added();
+		}
+		return value;
+	}
+
+	/*
+	 * Like Map.merge, except that a null result is not allowed.
+	 */
+	@SuppressWarnings("unchecked")
+	public V merge(int key, V value, BinaryOperator<V> remapping) {
+		int slot = slot(key);
+		V previous = (V) values[slot];
+		V merged = previous == null ? value : remapping.apply(previous, value);
+		keys[slot] = key;
+		values[slot] = Objects.requireNonNull(merged);
+		if (previous == null) {
+			added();
+		}
+		return merged;
+	}
+
+	/*
+	 * Keys in ascending order.
+	 */
+	public int[] keys() {
+		int[] result = new int[size];
+		int n = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				result[n++] = keys[i];
+			}
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	/*
+	 * Entries in ascending key order.
+	 */
+	public void forEach(Entry<? super V> action) {
+		for (int key : keys()) {
+			action.accept(key, get(key));
+		}
+	}
+
+	/*
+	 * Entries in table order, cheaper than forEach when order does not
+	 * matter.
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEachUnordered(Entry<? super V> action) {
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				action.accept(keys[i], (V) values[i]);
+			}
+		}
+	}
+
+	public <R> IntObjectMap<R> mapValues(Function<? super V, ? extends R> mapper) {
+		IntObjectMap<R> result = new IntObjectMap<>(size);
+		forEachUnordered((key, value) -> result.put(key, mapper.apply(value)));
+		return result;
+	}
+
+	/*
+	 * Boxes every key once, keys in ascending order.
+	 */
+	public SortedMap<Integer, V> toMap() {
+		SortedMap<Integer, V> map = new TreeMap<>();
+		forEachUnordered(map::put);
+		return map;
+	}
+
+	private int slot(int key) {
+		int hash = key * 0x9E3779B9;
+		int slot = (hash ^ hash >>> 16) & mask;
+		while (values[slot] != null && keys[slot] != key) {
+			slot = slot + 1 & mask;
+		}
+		return slot;
+	}
+
+	private void added() {
+		if (++size * 2 > values.length) {
+			rehash(values.length * 2);
+		}
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new int[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				int slot = slot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringJoiner joiner = new StringJoiner(", ", "{", "}");
+		forEach((key, value) -> joiner.add(key + "=" + value));
+		return joiner.toString();
+	}
+}
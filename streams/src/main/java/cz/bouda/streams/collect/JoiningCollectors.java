@@ -0,0 +1,160 @@
+package cz.bouda.streams.collect;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.function.*;
+import java.util.stream.*;
+
+/*
+ * Joining collectors that copy every mapped value once into chunked char
+ * buffers, optionally upper casing on the way, instead of creating an upper
+ * cased String per element and a StringJoiner per thread. Parallel partial
+ * results are linked together in encounter order, and the output is either
+ * built into one pre-sized String or written straight into a Writer or a
+ * ByteBuffer.
+ */
+public final class JoiningCollectors {
+
+	private JoiningCollectors() {
+	}
+
+	/*
+	 * Same result as map(mapper).collect(joining(...)), with upperCase set as
+	 * map(s -> s.toUpperCase(Locale.ROOT)) in between. Upper casing never
+	 * depends on the default locale, so an "i" stays "I" even in Turkish.
+	 */
+	public static <T> Collector<T, ?, String> joining(Function<? super T, ? extends CharSequence> mapper, CharSequence delimiter,
+			CharSequence prefix, CharSequence suffix, boolean upperCase) {
+		return Collector.of(
+				CharChunks::new,
+				accumulator(mapper, delimiter, upperCase),
+				combiner(delimiter),
+				chunks -> {
+					long length = prefix.length() + chunks.length() + suffix.length();
+					if (length > Integer.MAX_VALUE - 8) {
+						throw new OutOfMemoryError("Joined string too long: " + length);
+					}
+					StringBuilder builder = new StringBuilder((int) length).append(prefix);
+					chunks.writeTo(builder);
+					return builder.append(suffix).toString();
+				});
+	}
+
+	/*
+	 * Writes the joined text to the writer and returns the number of chars
+	 * written. The writer is neither flushed nor closed.
+	 */
+	public static <T> Collector<T, ?, Long> joiningTo(Writer writer, Function<? super T, ? extends CharSequence> mapper, CharSequence delimiter,
+			CharSequence prefix, CharSequence suffix, boolean upperCase) {
+		return Collector.of(
+				CharChunks::new,
+				accumulator(mapper, delimiter, upperCase),
+				combiner(delimiter),
+				chunks -> {
+					try {
+						writer.append(prefix);
+						chunks.writeTo(writer);
+						writer.append(suffix);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					return prefix.length() + chunks.length() + suffix.length();
+				});
+	}
+
+	/*
+	 * Encodes the joined text into the buffer and returns the number of bytes
+	 * written, a BufferOverflowException is thrown when it does not fit.
+	 */
+	public static <T> Collector<T, ?, Integer> joiningTo(ByteBuffer buffer, Charset charset, Function<? super T, ? extends CharSequence> mapper,
+			CharSequence delimiter, CharSequence prefix, CharSequence suffix, boolean upperCase) {
+		return Collector.of(
+				CharChunks::new,
+				accumulator(mapper, delimiter, upperCase),
+				combiner(delimiter),
+				chunks -> {
+					CharChunks all = new CharChunks();
+					all.append(prefix);
+					all.appendAll(chunks);
+					all.append(suffix);
+					return all.encodeTo(buffer, charset);
+				});
+	}
+
+	/*
+	 * Sequential streams are written through with a single reused chunk, so
+	 * memory stays constant however long the output gets. Parallel streams
+	 * fall back to the collector, which has to buffer to keep the order.
+	 */
+	public static <T> long writeJoined(Stream<T> stream, Writer writer, Function<? super T, ? extends CharSequence> mapper,
+			CharSequence delimiter, CharSequence prefix, CharSequence suffix, boolean upperCase) throws IOException {
+		if (stream.isParallel()) {
+			try {
+				return stream.collect(joiningTo(writer, mapper, delimiter, prefix, suffix, upperCase));
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
+
+		CharChunks buffer = new CharChunks();
+		long[] written = { prefix.length() };
+		writer.append(prefix);
+		try {
+			stream.forEachOrdered(t -> {
+				if (buffer.elements() > 0) {
+					buffer.append(delimiter);
+				}
+				append(buffer, mapper.apply(t), upperCase);
+				buffer.element();
+				if (buffer.length() >= CharChunks.CHUNK_SIZE) {
+					flush(buffer, writer, written);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		flush(buffer, writer, written);
+		writer.append(suffix);
+		return written[0] + suffix.length();
+	}
+
+	private static <T> BiConsumer<CharChunks, T> accumulator(Function<? super T, ? extends CharSequence> mapper,
+			CharSequence delimiter, boolean upperCase) {
+		return (chunks, t) -> {
+			if (chunks.elements() > 0) {
+				chunks.append(delimiter);
+			}
+			append(chunks, mapper.apply(t), upperCase);
+			chunks.element();
+		};
+	}
+
+	private static BinaryOperator<CharChunks> combiner(CharSequence delimiter) {
+		return (left, right) -> {
+			if (left.elements() > 0 && right.elements() > 0) {
+				left.append(delimiter);
+			}
+			left.appendAll(right);
+			return left;
+		};
+	}
+
+	private static void append(CharChunks chunks, CharSequence value, boolean upperCase) {
+		if (upperCase) {
+			chunks.appendUpperCase(value);
+		} else {
+			chunks.append(value);
+		}
+	}
+
+	private static void flush(CharChunks buffer, Writer writer, long[] written) {
+		try {
+			buffer.writeTo(writer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		written[0] += buffer.length();
+		buffer.clear();
+	}
+}
@@ -0,0 +1,71 @@
+package cz.bouda.streams.collect;
+
+import java.util.stream.Collector;
+
+import cz.bouda.streams.domain.Person;
+
+/*
+ * Mutable container for the aggregate Person built by Reduce.reduce_2:
+ * concatenated names and summed ages. Unlike reducing into a shared identity
+ * Person, every thread gets its own container, names go into linked char
+ * chunks instead of repeated String concatenation and ages into a long, so
+ * the result is the same sequentially and in parallel and the cost is linear.
+ */
+public class PersonAggregate {
+
+	private final CharChunks names = new CharChunks();
+
+	private long ageSum;
+
+	private long count;
+
+	/*
+	 * Same result as reduce_2, without mutating any input Person.
+	 */
+	public static Collector<Person, PersonAggregate, Person> collector() {
+		return Collector.of(PersonAggregate::new, PersonAggregate::accept, PersonAggregate::combine, PersonAggregate::toPerson);
+	}
+
+	public static Collector<Person, PersonAggregate, PersonAggregate> aggregating() {
+		return Collector.of(PersonAggregate::new, PersonAggregate::accept, PersonAggregate::combine, Collector.Characteristics.IDENTITY_FINISH);
+	}
+
+	public void accept(Person person) {
+		names.append(person.name);
+		ageSum += person.age;
+		count++;
+	}
+
+	public PersonAggregate combine(PersonAggregate other) {
+		names.appendAll(other.names);
+		ageSum += other.ageSum;
+		count += other.count;
+		return this;
+	}
+
+	public long getAgeSum() {
+		return ageSum;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public String getNames() {
+		StringBuilder builder = new StringBuilder(Math.toIntExact(names.length()));
+		names.writeTo(builder);
+		return builder.toString();
+	}
+
+	/*
+	 * Throws ArithmeticException when the age sum does not fit Person.age.
+	 */
+	public Person toPerson() {
+		return new Person(getNames(), Math.toIntExact(ageSum));
+	}
+
+	@Override
+	public String toString() {
+		return "PersonAggregate [ names=" + getNames() + ", ageSum=" + ageSum + ", count=" + count + " ]";
+	}
+}
@@ -0,0 +1,101 @@
+package cz.bouda.streams.collect;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.Collector;
+
+import static java.util.stream.Collectors.groupingBy;
+
+/*
+ * Top-K selection with bounded heaps. A partial result never holds more than
+ * k elements, so combining two of them costs O(k log k) however large the
+ * input is, and nothing is sorted but the final k elements.
+ */
+public final class TopCollectors {
+
+	private TopCollectors() {
+	}
+
+	/*
+	 * The k greatest elements by the comparator, greatest first. For k = 1
+	 * this is maxBy(comparator). Order among equal elements is unspecified.
+	 */
+	public static <T> Collector<T, ?, List<T>> top(int k, Comparator<? super T> comparator) {
+		checkK(k);
+		return Collector.<T, PriorityQueue<T>, List<T>> of(
+				() -> new PriorityQueue<>(Math.min(k, 1024) + 1, comparator),
+				(heap, t) -> offer(heap, t, k, comparator),
+				(left, right) -> {
+					for (T t : right) {
+						offer(left, t, k, comparator);
+					}
+					return left;
+				},
+				heap -> {
+					List<T> result = new ArrayList<>(heap);
+					result.sort(comparator.reversed());
+					return result;
+				},
+				Collector.Characteristics.UNORDERED);
+	}
+
+	/*
+	 * Same as groupingBy(classifier, maxBy(comparator)) generalized to the k
+	 * greatest elements per group.
+	 */
+	public static <T, K> Collector<T, ?, Map<K, List<T>>> topPerGroup(Function<? super T, ? extends K> classifier, int k,
+			Comparator<? super T> comparator) {
+		return groupingBy(classifier, top(k, comparator));
+	}
+
+	public static <T, K, M extends Map<K, List<T>>> Collector<T, ?, M> topPerGroup(Function<? super T, ? extends K> classifier,
+			Supplier<M> mapFactory, int k, Comparator<? super T> comparator) {
+		return groupingBy(classifier, mapFactory, top(k, comparator));
+	}
+
+	/*
+	 * The k most frequent keys with their counts, most frequent first. Counts
+	 * are kept exactly, one mutable counter per distinct key, and only the
+	 * selection uses a heap, so this is O(n + d log k) for d distinct keys
+	 * instead of sorting the whole count map.
+	 */
+	public static <T, K> Collector<T, ?, List<Map.Entry<K, Long>>> mostFrequent(Function<? super T, ? extends K> classifier, int k) {
+		checkK(k);
+		Comparator<Map.Entry<K, Long>> byCount = Map.Entry.comparingByValue();
+		return Collector.<T, Map<K, long[]>, List<Map.Entry<K, Long>>> of(
+				HashMap::new,
+				(counts, t) -> counts.computeIfAbsent(classifier.apply(t), key -> new long[1])[0]++,
+				(left, right) -> {
+					right.forEach((key, count) -> {
+						long[] existing = left.putIfAbsent(key, count);
+						if (existing != null) {
+							existing[0] += count[0];
+						}
+					});
+					return left;
+				},
+				counts -> {
+					PriorityQueue<Map.Entry<K, Long>> heap = new PriorityQueue<>(Math.min(k, 1024) + 1, byCount);
+					counts.forEach((key, count) -> offer(heap, new AbstractMap.SimpleImmutableEntry<>(key, count[0]), k, byCount));
+					List<Map.Entry<K, Long>> result = new ArrayList<>(heap);
+					result.sort(byCount.reversed());
+					return result;
+				},
+				Collector.Characteristics.UNORDERED);
+	}
+
+	private static <T> void offer(PriorityQueue<T> heap, T t, int k, Comparator<? super T> comparator) {
+		if (heap.size() < k) {
+			heap.add(t);
+		} else if (comparator.compare(t, heap.peek()) > 0) {
+			heap.poll();
+			heap.add(t);
+		}
+	}
+
+	private static void checkK(int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be positive: " + k);
+		}
+	}
+}
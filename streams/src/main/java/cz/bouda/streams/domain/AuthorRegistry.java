@@ -0,0 +1,57 @@
+package cz.bouda.streams.domain;
+
+import java.util.*;
+
+/*
+ * Flyweight registry of authors. Every name maps to exactly one Author
+ * instance and a dense int id, so authors can be compared by identity and
+ * stored as ids in int arrays and bit sets.
+ */
+public class AuthorRegistry {
+
+	private final Map<String, Integer> ids = new HashMap<>();
+
+	private final List<Author> authors = new ArrayList<>();
+
+	public synchronized Author intern(String name) {
+		return authors.get(id(name));
+	}
+
+	public synchronized Author intern(Author author) {
+		return intern(author.getName());
+	}
+
+	/*
+	 * Id of the name, registering it when it is new. Ids start at 0 and have
+	 * no gaps.
+	 */
+	public synchronized int id(String name) {
+		Integer id = ids.get(name);
+		if (id == null) {
+			id = authors.size();
+			authors.add(new Author(name));
+			ids.put(name, id);
+		}
+		return id;
+	}
+
+	public int id(Author author) {
+		return id(author.getName());
+	}
+
+	/*
+	 * Id of a known name, -1 for an unknown one.
+	 */
+	public synchronized int find(String name) {
+		Integer id = ids.get(name);
+		return id == null ? -1 : id;
+	}
+
+	public synchronized Author get(int id) {
+		return authors.get(id);
+	}
+
+	public synchronized int size() {
+		return authors.size();
+	}
+}
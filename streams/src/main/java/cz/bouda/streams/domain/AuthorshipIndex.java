@@ -0,0 +1,245 @@
+package cz.bouda.streams.domain;
+
+import java.util.*;
+import java.util.stream.*;
+
+/*
+ * Authorship of a book collection as ids instead of Author lists. Every
+ * book gets a dense id and keeps only its topic and its author ids in a
+ * sorted int[], every author a sorted int[] of its book ids, every topic a
+ * BitSet of its author ids. An author's list costs 4 bytes per book, where a
+ * BitSet would cost a bit per book in the whole index; topics are few, so
+ * their dense BitSets are cheap. The indexed Book instances and their Author
+ * lists are not retained; books are rebuilt from the ids on demand, sharing
+ * the interned Authors of the registry. Queries combine id sets instead of
+ * scanning all books:
+ * 
+ * - books by an author: one id list
+ * - books by all of several authors: merge of their id lists
+ * - co-authors: OR of the author arrays of the author's books
+ * - authors per topic: one BitSet
+ */
+public class AuthorshipIndex {
+
+	private final AuthorRegistry registry;
+
+	private final List<Topic> topics = new ArrayList<>();
+
+	private final List<int[]> bookAuthors = new ArrayList<>();
+
+	private final List<IdList> booksByAuthor = new ArrayList<>();
+
+	private final EnumMap<Topic, BitSet> authorsByTopic = new EnumMap<>(Topic.class);
+
+	public AuthorshipIndex() {
+		this(new AuthorRegistry());
+	}
+
+	public AuthorshipIndex(AuthorRegistry registry) {
+		this.registry = registry;
+	}
+
+	public static AuthorshipIndex of(Collection<Book> books) {
+		AuthorshipIndex index = new AuthorshipIndex();
+		books.forEach(index::add);
+		return index;
+	}
+
+	public AuthorRegistry getRegistry() {
+		return registry;
+	}
+
+	/*
+	 * Indexes the book and returns its id. Adding the same book twice gives
+	 * it two ids, like a list holding it twice.
+	 */
+	public int add(Book book) {
+		int bookId = topics.size();
+		List<Author> authors = book.getAuthors() == null ? Collections.emptyList() : book.getAuthors();
+		int[] ids = authors.stream().mapToInt(registry::id).distinct().sorted().toArray();
+
+		topics.add(book.getTopic());
+		bookAuthors.add(ids);
+		BitSet topicAuthors = authorsByTopic.computeIfAbsent(book.getTopic(), topic -> new BitSet());
+		for (int id : ids) {
+			while (booksByAuthor.size() <= id) {
+				booksByAuthor.add(new IdList());
+			}
+			booksByAuthor.get(id).add(bookId);
+			topicAuthors.set(id);
+		}
+		return bookId;
+	}
+
+	public int size() {
+		return topics.size();
+	}
+
+	/*
+	 * A new Book equal in topic and authors to the indexed one, authors in
+	 * id order and without duplicates.
+	 */
+	public Book book(int id) {
+		Book book = new Book(topics.get(id));
+		int[] ids = bookAuthors.get(id);
+		List<Author> authors = new ArrayList<>(ids.length);
+		for (int author : ids) {
+			authors.add(registry.get(author));
+		}
+		book.setAuthors(authors);
+		return book;
+	}
+
+	/*
+	 * Sorted author ids of the book.
+	 */
+	public int[] authorIds(int bookId) {
+		return bookAuthors.get(bookId).clone();
+	}
+
+	/*
+	 * Sorted ids of the books written by the author.
+	 */
+	public int[] bookIdsBy(String author) {
+		return booksOf(author).toArray();
+	}
+
+	public List<Book> booksBy(String author) {
+		return books(booksOf(author).toArray());
+	}
+
+	/*
+	 * Books every one of the authors worked on. The lists are merged
+	 * shortest first, so the result only shrinks.
+	 */
+	public List<Book> booksByAll(String... authors) {
+		if (authors.length == 0) {
+			return Collections.emptyList();
+		}
+		IdList[] lists = new IdList[authors.length];
+		for (int i = 0; i < authors.length; i++) {
+			lists[i] = booksOf(authors[i]);
+		}
+		Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+		int[] result = lists[0].toArray();
+		int size = result.length;
+		for (int i = 1; i < lists.length && size > 0; i++) {
+			size = lists[i].retain(result, size);
+		}
+		return books(Arrays.copyOf(result, size));
+	}
+
+	public int countBooksTogether(String author1, String author2) {
+		IdList books1 = booksOf(author1);
+		IdList books2 = booksOf(author2);
+		int count = 0;
+		for (int i = 0, j = 0; i < books1.size && j < books2.size;) {
+			if (books1.ids[i] < books2.ids[j]) {
+				i++;
+			} else if (books1.ids[i] > books2.ids[j]) {
+				j++;
+			} else {
+				count++;
+				i++;
+				j++;
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * Authors who share at least one book with the given author.
+	 */
+	public List<Author> coAuthors(String author) {
+		int id = registry.find(author);
+		BitSet result = new BitSet();
+		IdList booksOfAuthor = booksOf(author);
+		for (int i = 0; i < booksOfAuthor.size; i++) {
+			for (int coAuthor : bookAuthors.get(booksOfAuthor.ids[i])) {
+				result.set(coAuthor);
+			}
+		}
+		if (id >= 0) {
+			result.clear(id);
+		}
+		return authors(result);
+	}
+
+	/*
+	 * Every pair of authors who wrote a book together with the number of
+	 * such books. A pair is keyed by both ids in one long, lower id first.
+	 */
+	public Map<Long, Integer> coAuthorPairs() {
+		Map<Long, Integer> pairs = new HashMap<>();
+		for (int[] ids : bookAuthors) {
+			for (int i = 0; i < ids.length; i++) {
+				for (int j = i + 1; j < ids.length; j++) {
+					pairs.merge(((long) ids[i] << 32) | ids[j], 1, Integer::sum);
+				}
+			}
+		}
+		return pairs;
+	}
+
+	public List<Author> authorsOf(Topic topic) {
+		BitSet ids = authorsByTopic.get(topic);
+		return ids == null ? Collections.emptyList() : authors(ids);
+	}
+
+	private IdList booksOf(String author) {
+		int id = registry.find(author);
+		return id < 0 || id >= booksByAuthor.size() ? IdList.EMPTY : booksByAuthor.get(id);
+	}
+
+	private List<Book> books(int[] ids) {
+		return Arrays.stream(ids).mapToObj(this::book).collect(Collectors.toList());
+	}
+
+	private List<Author> authors(BitSet ids) {
+		return ids.stream().mapToObj(registry::get).collect(Collectors.toList());
+	}
+
+	/*
+	 * Growable sorted int[]. Book ids are handed out in increasing order, so
+	 * appending keeps it sorted.
+	 */
+	private static final class IdList {
+
+		static final IdList EMPTY = new IdList();
+
+		private int[] ids = new int[2];
+
+		private int size;
+
+		void add(int id) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+			}
+			ids[size++] = id;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(ids, size);
+		}
+
+		/*
+		 * Keeps the first size ids of the sorted array that are also in this
+		 * list and returns how many are left.
+		 */
+		int retain(int[] sorted, int size) {
+			int kept = 0;
+			for (int i = 0, j = 0; i < size && j < this.size;) {
+				if (sorted[i] < ids[j]) {
+					i++;
+				} else if (sorted[i] > ids[j]) {
+					j++;
+				} else {
+					sorted[kept++] = sorted[i];
+					i++;
+					j++;
+				}
+			}
+			return kept;
+		}
+	}
+}
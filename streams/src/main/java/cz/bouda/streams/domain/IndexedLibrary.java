@@ -0,0 +1,181 @@
+package cz.bouda.streams.domain;
+
+import java.util.*;
+
+/*
+ * Book collection that keeps its Grouping answers as indexes, updated on
+ * every add and remove:
+ * 
+ * - topic -> books, an EnumMap
+ * - author name -> books
+ * - count by topic, plus the topic with the most books
+ * - per topic, books by their number of authors
+ * 
+ * numberInTopic, mostAuthorByTopic and mostPopularTopic then read the
+ * indexes instead of streaming over the library. A book counts once per
+ * add, like a list holding it twice. Authors are matched by name, and a
+ * book's authors must not change while it is in the library.
+ * 
+ * Every add is an Entry, compared by identity, so the indexes hold it in
+ * insertion ordered sets and remove finds it through the book instead of
+ * scanning the lists.
+ */
+public class IndexedLibrary {
+
+	private final EnumMap<Topic, Set<Entry>> byTopic = new EnumMap<>(Topic.class);
+
+	private final Map<String, Set<Entry>> byAuthor = new HashMap<>();
+
+	private final long[] countByTopic = new long[Topic.values().length];
+
+	private final EnumMap<Topic, TreeMap<Integer, Set<Entry>>> byAuthorCount = new EnumMap<>(Topic.class);
+
+	/*
+	 * The entries of every book, the latest add last.
+	 */
+	private final Map<Book, Deque<Entry>> entries = new IdentityHashMap<>();
+
+	private int size;
+
+	public synchronized void add(Book book) {
+		Entry entry = new Entry(book);
+		entries.computeIfAbsent(book, b -> new ArrayDeque<>()).addLast(entry);
+		byTopic.computeIfAbsent(book.getTopic(), topic -> new LinkedHashSet<>()).add(entry);
+		for (String author : authorNames(book)) {
+			byAuthor.computeIfAbsent(author, name -> new LinkedHashSet<>()).add(entry);
+		}
+		countByTopic[book.getTopic().ordinal()]++;
+		byAuthorCount.computeIfAbsent(book.getTopic(), topic -> new TreeMap<>())
+				.computeIfAbsent(authorCount(book), authors -> new LinkedHashSet<>())
+				.add(entry);
+		size++;
+	}
+
+	public void addAll(Collection<Book> books) {
+		books.forEach(this::add);
+	}
+
+	/*
+	 * Removes one occurrence of the book, returns false when it is not in
+	 * the library. Costs O(1) per index, plus O(log) in the author counts of
+	 * its topic.
+	 */
+	public synchronized boolean remove(Book book) {
+		Deque<Entry> added = entries.get(book);
+		if (added == null) {
+			return false;
+		}
+		Entry entry = added.removeLast();
+		if (added.isEmpty()) {
+			entries.remove(book);
+		}
+		Set<Entry> topicBooks = byTopic.get(book.getTopic());
+		topicBooks.remove(entry);
+		if (topicBooks.isEmpty()) {
+			byTopic.remove(book.getTopic());
+		}
+		for (String author : authorNames(book)) {
+			Set<Entry> authorBooks = byAuthor.get(author);
+			authorBooks.remove(entry);
+			if (authorBooks.isEmpty()) {
+				byAuthor.remove(author);
+			}
+		}
+		countByTopic[book.getTopic().ordinal()]--;
+		TreeMap<Integer, Set<Entry>> counts = byAuthorCount.get(book.getTopic());
+		Set<Entry> sameCount = counts.get(authorCount(book));
+		sameCount.remove(entry);
+		if (sameCount.isEmpty()) {
+			counts.remove(authorCount(book));
+		}
+		size--;
+		return true;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized List<Book> byTopic(Topic topic) {
+		return books(byTopic.get(topic));
+	}
+
+	public synchronized List<Book> byAuthor(String author) {
+		return books(byAuthor.get(author));
+	}
+
+	/*
+	 * Same as Grouping.numberInTopic.
+	 */
+	public synchronized Map<Topic, Long> numberInTopic() {
+		EnumMap<Topic, Long> result = new EnumMap<>(Topic.class);
+		Topic[] topics = Topic.values();
+		for (int i = 0; i < topics.length; i++) {
+			if (countByTopic[i] > 0) {
+				result.put(topics[i], countByTopic[i]);
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Same as Grouping.mostAuthorByTopic: among books with the most authors
+	 * the one added first.
+	 */
+	public synchronized Map<Topic, Optional<Book>> mostAuthorByTopic() {
+		EnumMap<Topic, Optional<Book>> result = new EnumMap<>(Topic.class);
+		byAuthorCount.forEach((topic, counts) -> {
+			if (!counts.isEmpty()) {
+				result.put(topic, Optional.of(counts.lastEntry().getValue().iterator().next().book));
+			}
+		});
+		return result;
+	}
+
+	/*
+	 * Same as Grouping.mostPopularTopic, O(number of topics).
+	 */
+	public synchronized Optional<Topic> mostPopularTopic() {
+		int best = -1;
+		for (int i = 0; i < countByTopic.length; i++) {
+			if (countByTopic[i] > 0 && (best < 0 || countByTopic[i] > countByTopic[best])) {
+				best = i;
+			}
+		}
+		return best < 0 ? Optional.empty() : Optional.of(Topic.values()[best]);
+	}
+
+	private static Set<String> authorNames(Book book) {
+		Set<String> names = new LinkedHashSet<>();
+		if (book.getAuthors() != null) {
+			book.getAuthors().forEach(author -> names.add(author.getName()));
+		}
+		return names;
+	}
+
+	private static int authorCount(Book book) {
+		return book.getAuthors() == null ? 0 : book.getAuthors().size();
+	}
+
+	private static List<Book> books(Set<Entry> entries) {
+		if (entries == null) {
+			return Collections.emptyList();
+		}
+		List<Book> books = new ArrayList<>(entries.size());
+		entries.forEach(entry -> books.add(entry.book));
+		return Collections.unmodifiableList(books);
+	}
+
+	/*
+	 * One add of a book. Equality is identity, so a book added twice has two
+	 * entries in each index.
+	 */
+	private static final class Entry {
+
+		private final Book book;
+
+		Entry(Book book) {
+			this.book = book;
+		}
+	}
+}
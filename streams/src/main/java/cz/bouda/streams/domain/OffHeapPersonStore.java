@@ -0,0 +1,345 @@
+package cz.bouda.streams.domain;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/*
+ * Person store outside the Java heap. Every row is 12 bytes in direct
+ * ByteBuffer segments: the age and a reference to the name, which is stored
+ * as length prefixed UTF-8 in separate name segments. The heap only holds
+ * the segment objects, so 100M persons cost about 1.2 GB plus their names
+ * off heap and nothing the garbage collector has to trace.
+ * 
+ * Queries go through IntStream views over row numbers and ages, which split
+ * evenly for parallel streams; Person objects are only created on request:
+ * 
+ * 	store.ages().parallel().average();
+ * 	store.rows().parallel().filter(store.nameStartsWith("P")).count();
+ * 
+ * Removed rows are skipped until compact() rewrites the store, which
+ * renumbers the remaining rows. The store is not safe for concurrent
+ * modification; reading from many threads is fine while nobody writes.
+ * Like ArrayList, a stream over rows that sees an append, remove or compact
+ * made after the stream was created fails with
+ * ConcurrentModificationException, on a best effort basis.
+ */
+public class OffHeapPersonStore {
+
+	private static final int ROW_SIZE = 12;
+
+	private static final int ROWS_PER_SEGMENT = 1 << 20;
+
+	private static final int NAME_SEGMENT_SIZE = 1 << 24;
+
+	private static final long REMOVED = -1;
+
+	private final List<ByteBuffer> rowSegments = new ArrayList<>();
+
+	private final List<ByteBuffer> nameSegments = new ArrayList<>();
+
+	/*
+	 * View of the last name segment positioned for the next name.
+	 */
+	private ByteBuffer nameWriter;
+
+	private int size;
+
+	private int removed;
+
+	private long nameBytes;
+
+	/*
+	 * Number of structural changes, checked by the row spliterators.
+	 */
+	private int modCount;
+
+	public void append(String name, int age) {
+		checkCapacity();
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		long ref = reserveName(bytes.length);
+		nameWriter.putInt(bytes.length);
+		nameWriter.put(bytes);
+		appendRow(age, ref);
+	}
+
+	public void append(Person person) {
+		append(person.name, person.age);
+	}
+
+	public void appendAll(Collection<Person> persons) {
+		persons.forEach(this::append);
+	}
+
+	/*
+	 * Number of rows including removed ones, rows are numbered 0 to size - 1.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int liveRows() {
+		return size - removed;
+	}
+
+	public boolean isRemoved(int row) {
+		return nameRef(checkRow(row)) == REMOVED;
+	}
+
+	public void remove(int row) {
+		if (!isRemoved(row)) {
+			rowSegments.get(row / ROWS_PER_SEGMENT).putLong((row % ROWS_PER_SEGMENT) * ROW_SIZE + 4, REMOVED);
+			removed++;
+			modCount++;
+		}
+	}
+
+	public int age(int row) {
+		checkLive(row);
+		return storedAge(row);
+	}
+
+	public String name(int row) {
+		long ref = checkLive(row);
+		ByteBuffer names = nameSegments.get((int) (ref / NAME_SEGMENT_SIZE)).duplicate();
+		names.position((int) (ref % NAME_SEGMENT_SIZE));
+		byte[] bytes = new byte[names.getInt()];
+		names.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public Person get(int row) {
+		return new Person(name(row), age(row));
+	}
+
+	/*
+	 * Compares the stored UTF-8 bytes with the prefix, the name is never
+	 * decoded into a String.
+	 */
+	public IntPredicate nameStartsWith(String prefix) {
+		byte[] expected = prefix.getBytes(StandardCharsets.UTF_8);
+		return row -> {
+			long ref = checkLive(row);
+			ByteBuffer names = nameSegments.get((int) (ref / NAME_SEGMENT_SIZE));
+			int position = (int) (ref % NAME_SEGMENT_SIZE);
+			if (names.getInt(position) < expected.length) {
+				return false;
+			}
+			for (int i = 0; i < expected.length; i++) {
+				if (names.get(position + 4 + i) != expected[i]) {
+					return false;
+				}
+			}
+			return true;
+		};
+	}
+
+	/*
+	 * Numbers of all rows that are not removed.
+	 */
+	public IntStream rows() {
+		return StreamSupport.intStream(new RowSpliterator(0, size, row -> row), false);
+	}
+
+	public IntStream ages() {
+		return StreamSupport.intStream(new RowSpliterator(0, size, this::storedAge), false);
+	}
+
+	public Stream<Person> persons() {
+		return rows().mapToObj(this::get);
+	}
+
+	/*
+	 * Rewrites the live rows into fresh segments, dropping removed rows and
+	 * their names. Rows are renumbered in their previous order. Ages and the
+	 * length prefixed name bytes are copied buffer to buffer, no name is
+	 * decoded. The old segments are freed when the garbage collector reclaims
+	 * their buffers.
+	 */
+	public void compact() {
+		if (removed == 0) {
+			return;
+		}
+		OffHeapPersonStore compacted = new OffHeapPersonStore();
+		ByteBuffer[] sources = new ByteBuffer[nameSegments.size()];
+		for (int row = 0; row < size; row++) {
+			long ref = nameRef(row);
+			if (ref == REMOVED) {
+				continue;
+			}
+			int segment = (int) (ref / NAME_SEGMENT_SIZE);
+			if (sources[segment] == null) {
+				sources[segment] = nameSegments.get(segment).duplicate();
+			}
+			ByteBuffer source = sources[segment];
+			int position = (int) (ref % NAME_SEGMENT_SIZE);
+			int length = source.getInt(position);
+			source.limit(position + 4 + length);
+			source.position(position);
+			long copied = compacted.reserveName(length);
+			compacted.nameWriter.put(source);
+			source.limit(source.capacity());
+			compacted.appendRow(storedAge(row), copied);
+		}
+		rowSegments.clear();
+		rowSegments.addAll(compacted.rowSegments);
+		nameSegments.clear();
+		nameSegments.addAll(compacted.nameSegments);
+		size = compacted.size;
+		nameWriter = compacted.nameWriter;
+		nameBytes = compacted.nameBytes;
+		removed = 0;
+		modCount++;
+	}
+
+	/*
+	 * Direct memory held by the segments.
+	 */
+	public long offHeapBytes() {
+		return (long) rowSegments.size() * ROWS_PER_SEGMENT * ROW_SIZE + (long) nameSegments.size() * NAME_SEGMENT_SIZE;
+	}
+
+	private void checkCapacity() {
+		if (size == Integer.MAX_VALUE) {
+			throw new IllegalStateException("Store is full");
+		}
+	}
+
+	private void appendRow(int age, long nameRef) {
+		checkCapacity();
+		if (size % ROWS_PER_SEGMENT == 0 && size / ROWS_PER_SEGMENT == rowSegments.size()) {
+			rowSegments.add(ByteBuffer.allocateDirect(ROWS_PER_SEGMENT * ROW_SIZE));
+		}
+		ByteBuffer rows = rowSegments.get(size / ROWS_PER_SEGMENT);
+		int position = (size % ROWS_PER_SEGMENT) * ROW_SIZE;
+		rows.putInt(position, age);
+		rows.putLong(position + 4, nameRef);
+		size++;
+		modCount++;
+	}
+
+	/*
+	 * Makes room for a name of the given number of bytes and its length
+	 * prefix, returns its reference and leaves nameWriter at its start.
+	 */
+	private long reserveName(int bytes) {
+		int length = 4 + bytes;
+		if (length > NAME_SEGMENT_SIZE) {
+			throw new IllegalArgumentException("Name too long: " + bytes + " bytes");
+		}
+		if (nameBytes + length > (long) nameSegments.size() * NAME_SEGMENT_SIZE) {
+			nameBytes = (long) nameSegments.size() * NAME_SEGMENT_SIZE;
+			ByteBuffer segment = ByteBuffer.allocateDirect(NAME_SEGMENT_SIZE);
+			nameSegments.add(segment);
+			nameWriter = segment.duplicate();
+		}
+		long ref = nameBytes;
+		nameWriter.position((int) (ref % NAME_SEGMENT_SIZE));
+		nameBytes += length;
+		return ref;
+	}
+
+	private int storedAge(int row) {
+		return rowSegments.get(row / ROWS_PER_SEGMENT).getInt((row % ROWS_PER_SEGMENT) * ROW_SIZE);
+	}
+
+	private long nameRef(int row) {
+		return rowSegments.get(row / ROWS_PER_SEGMENT).getLong((row % ROWS_PER_SEGMENT) * ROW_SIZE + 4);
+	}
+
+	private long checkLive(int row) {
+		long ref = nameRef(checkRow(row));
+		if (ref == REMOVED) {
+			throw new IllegalArgumentException("Row removed: " + row);
+		}
+		return ref;
+	}
+
+	private int checkRow(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Row: " + row + ", size: " + size);
+		}
+		return row;
+	}
+
+	/*
+	 * Splits the row range in half. Exactly sized only while no row has been
+	 * removed. Not IMMUTABLE, the store can change under it; that is checked
+	 * against the modification count taken when the spliterator was created.
+	 */
+	private class RowSpliterator implements Spliterator.OfInt {
+
+		private int from;
+
+		private final int to;
+
+		private final IntUnaryOperator value;
+
+		private final int expectedModCount;
+
+		RowSpliterator(int from, int to, IntUnaryOperator value) {
+			this(from, to, value, modCount);
+		}
+
+		private RowSpliterator(int from, int to, IntUnaryOperator value, int expectedModCount) {
+			this.from = from;
+			this.to = to;
+			this.value = value;
+			this.expectedModCount = expectedModCount;
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			checkForComodification();
+			while (from < to) {
+				int row = from++;
+				if (nameRef(row) != REMOVED) {
+					action.accept(value.applyAsInt(row));
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			checkForComodification();
+			boolean skip = removed > 0;
+			for (; from < to; from++) {
+				if (!skip || nameRef(from) != REMOVED) {
+					action.accept(value.applyAsInt(from));
+				}
+			}
+			checkForComodification();
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			int mid = (from + to) >>> 1;
+			if (mid - from < 1024) {
+				return null;
+			}
+			RowSpliterator prefix = new RowSpliterator(from, mid, value, expectedModCount);
+			from = mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return to - from;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL | (removed == 0 ? SIZED | SUBSIZED : 0);
+		}
+
+		private void checkForComodification() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+}
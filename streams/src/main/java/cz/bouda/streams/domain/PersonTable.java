@@ -0,0 +1,202 @@
+package cz.bouda.streams.domain;
+
+import java.util.*;
+import java.util.stream.*;
+
+/*
+ * Column store of persons. Ages live in a plain int[] and names are
+ * dictionary encoded: every distinct name is stored once and rows only keep
+ * its int id. All aggregations run on IntStream, so no age is ever boxed into
+ * an Integer.
+ */
+public class PersonTable {
+
+	private int[] ages;
+
+	private int[] nameIds;
+
+	private int size;
+
+	private final List<String> names = new ArrayList<>();
+
+	private final Map<String, Integer> nameIndex = new HashMap<>();
+
+	public PersonTable() {
+		this(16);
+	}
+
+	public PersonTable(int capacity) {
+		ages = new int[Math.max(1, capacity)];
+		nameIds = new int[ages.length];
+	}
+
+	public static PersonTable of(Collection<Person> persons) {
+		PersonTable table = new PersonTable(persons.size());
+		persons.forEach(table::add);
+		return table;
+	}
+
+	public void add(Person person) {
+		add(person.name, person.age);
+	}
+
+	public void add(String name, int age) {
+		if (size == ages.length) {
+			int capacity = ages.length + (ages.length >> 1) + 1;
+			ages = Arrays.copyOf(ages, capacity);
+			nameIds = Arrays.copyOf(nameIds, capacity);
+		}
+		Integer id = nameIndex.get(name);
+		if (id == null) {
+			id = names.size();
+			names.add(name);
+			nameIndex.put(name, id);
+		}
+		ages[size] = age;
+		nameIds[size] = id;
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int distinctNames() {
+		return names.size();
+	}
+
+	public int age(int row) {
+		return ages[checkRow(row)];
+	}
+
+	public String name(int row) {
+		return names.get(nameIds[checkRow(row)]);
+	}
+
+	/*
+	 * Materializes a single row. Only use it when a Person is really needed.
+	 */
+	public Person get(int row) {
+		return new Person(name(row), age(row));
+	}
+
+	public IntStream ages() {
+		return Arrays.stream(ages, 0, size);
+	}
+
+	public Stream<Person> persons() {
+		return IntStream.range(0, size).mapToObj(this::get);
+	}
+
+	/*
+	 * Same as Reduce.reduce_3, but summed into a long.
+	 */
+	public long sumOfAges() {
+		return ages().asLongStream().sum();
+	}
+
+	/*
+	 * Same as Advanced.collector_average, 0 for an empty table.
+	 */
+	public double averageAge() {
+		return ages().average().orElse(0);
+	}
+
+	public OptionalInt maxAge() {
+		return ages().max();
+	}
+
+	/*
+	 * Same as Advanced.summary_statistics.
+	 */
+	public IntSummaryStatistics ageStatistics() {
+		return ages().summaryStatistics();
+	}
+
+	/*
+	 * Row numbers grouped by age, ages in ascending order and rows in table
+	 * order. Computed by a counting sort over the age range, so each distinct
+	 * age is boxed once instead of once per row.
+	 */
+	public Map<Integer, int[]> rowsByAge() {
+		Map<Integer, int[]> groups = new TreeMap<>();
+		if (size == 0) {
+			return groups;
+		}
+		IntSummaryStatistics stats = ageStatistics();
+		long range = (long) stats.getMax() - stats.getMin() + 1;
+		if (range > Math.max(1 << 16, size)) {
+			return sparseRowsByAge();
+		}
+
+		int min = stats.getMin();
+		int[] counts = new int[(int) range];
+		for (int i = 0; i < size; i++) {
+			counts[ages[i] - min]++;
+		}
+		int[][] bins = new int[counts.length][];
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0) {
+				bins[i] = new int[counts[i]];
+				counts[i] = 0;
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			int bin = ages[i] - min;
+			bins[bin][counts[bin]++] = i;
+		}
+		for (int i = 0; i < bins.length; i++) {
+			if (bins[i] != null) {
+				groups.put(i + min, bins[i]);
+			}
+		}
+		return groups;
+	}
+
+	/*
+	 * Same as Advanced.collector_group_by_age, built from rowsByAge().
+	 */
+	public Map<Integer, List<Person>> groupByAge() {
+		Map<Integer, List<Person>> groups = new TreeMap<>();
+		rowsByAge().forEach((age, rows) -> {
+			List<Person> persons = new ArrayList<>(rows.length);
+			for (int row : rows) {
+				persons.add(new Person(names.get(nameIds[row]), age));
+			}
+			groups.put(age, persons);
+		});
+		return groups;
+	}
+
+	private Map<Integer, int[]> sparseRowsByAge() {
+		long[] keyed = new long[size];
+		for (int i = 0; i < size; i++) {
+			keyed[i] = ((long) ages[i] << 32) | i;
+		}
+		Arrays.sort(keyed);
+
+		Map<Integer, int[]> groups = new TreeMap<>();
+		int start = 0;
+		while (start < size) {
+			int age = (int) (keyed[start] >> 32);
+			int end = start;
+			while (end < size && (int) (keyed[end] >> 32) == age) {
+				end++;
+			}
+			int[] rows = new int[end - start];
+			for (int i = start; i < end; i++) {
+				rows[i - start] = (int) keyed[i];
+			}
+			groups.put(age, rows);
+			start = end;
+		}
+		return groups;
+	}
+
+	private int checkRow(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Row: " + row + ", size: " + size);
+		}
+		return row;
+	}
+}
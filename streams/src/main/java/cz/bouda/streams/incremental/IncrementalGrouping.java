@@ -0,0 +1,92 @@
+package cz.bouda.streams.incremental;
+
+import java.util.*;
+import java.util.function.*;
+
+/*
+ * Keeps groupingBy(classifier, counting()) and groupingBy(classifier,
+ * summarizingInt(value)) up to date while elements are added and removed,
+ * so a query costs O(keys) instead of a scan over the whole collection:
+ * 
+ * 	IncrementalGrouping<Book, Topic> stats = new IncrementalGrouping<>(Topic.class, Book::getTopic, b -> b.getAuthors().size());
+ * 	library.forEach(stats::add);
+ * 	...
+ * 	stats.add(newBook);
+ * 	stats.remove(oldBook);
+ * 	stats.counts();
+ * 
+ * Removing an element must see the same key and value as when it was added.
+ */
+public class IncrementalGrouping<T, K extends Enum<K>> {
+
+	private final Class<K> type;
+
+	private final K[] keys;
+
+	private final Function<? super T, K> classifier;
+
+	private final ToIntFunction<? super T> value;
+
+	private final RunningStatistics[] statistics;
+
+	public IncrementalGrouping(Class<K> type, Function<? super T, K> classifier, ToIntFunction<? super T> value) {
+		this.type = type;
+		this.keys = type.getEnumConstants();
+		this.classifier = classifier;
+		this.value = value;
+		this.statistics = new RunningStatistics[keys.length];
+	}
+
+	public synchronized void add(T element) {
+		int ordinal = classifier.apply(element).ordinal();
+		if (statistics[ordinal] == null) {
+			statistics[ordinal] = new RunningStatistics();
+		}
+		statistics[ordinal].accept(value.applyAsInt(element));
+	}
+
+	public synchronized void remove(T element) {
+		K key = classifier.apply(element);
+		RunningStatistics stats = statistics[key.ordinal()];
+		if (stats == null) {
+			throw new IllegalArgumentException("Nothing to remove for " + key);
+		}
+		stats.remove(value.applyAsInt(element));
+	}
+
+	public synchronized long count(K key) {
+		RunningStatistics stats = statistics[key.ordinal()];
+		return stats == null ? 0 : stats.getCount();
+	}
+
+	/*
+	 * Same as groupingBy(classifier, counting()): keys without elements are
+	 * left out.
+	 */
+	public synchronized EnumMap<K, Long> counts() {
+		EnumMap<K, Long> result = new EnumMap<>(type);
+		for (int i = 0; i < keys.length; i++) {
+			if (statistics[i] != null && statistics[i].getCount() > 0) {
+				result.put(keys[i], statistics[i].getCount());
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Snapshot per key, later changes do not affect the returned statistics.
+	 */
+	public synchronized EnumMap<K, RunningStatistics> statistics() {
+		EnumMap<K, RunningStatistics> result = new EnumMap<>(type);
+		for (int i = 0; i < keys.length; i++) {
+			if (statistics[i] != null && statistics[i].getCount() > 0) {
+				result.put(keys[i], statistics[i].copy());
+			}
+		}
+		return result;
+	}
+
+	public synchronized void clear() {
+		Arrays.fill(statistics, null);
+	}
+}
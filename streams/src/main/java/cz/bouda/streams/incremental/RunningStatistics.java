@@ -0,0 +1,72 @@
+package cz.bouda.streams.incremental;
+
+import java.util.*;
+
+/*
+ * Like IntSummaryStatistics, but values can also be removed. Count and sum
+ * are updated in O(1), min and max come from a value histogram in O(log v)
+ * for v distinct values.
+ */
+public class RunningStatistics {
+
+	private final TreeMap<Integer, long[]> values = new TreeMap<>();
+
+	private long count;
+
+	private long sum;
+
+	public void accept(int value) {
+		values.computeIfAbsent(value, v -> new long[1])[0]++;
+		count++;
+		sum += value;
+	}
+
+	/*
+	 * Throws IllegalArgumentException when the value was never accepted.
+	 */
+	public void remove(int value) {
+		long[] occurrences = values.get(value);
+		if (occurrences == null) {
+			throw new IllegalArgumentException("Value not present: " + value);
+		}
+		if (--occurrences[0] == 0) {
+			values.remove(value);
+		}
+		count--;
+		sum -= value;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getSum() {
+		return sum;
+	}
+
+	public int getMin() {
+		return count == 0 ? Integer.MAX_VALUE : values.firstKey();
+	}
+
+	public int getMax() {
+		return count == 0 ? Integer.MIN_VALUE : values.lastKey();
+	}
+
+	public double getAverage() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	public RunningStatistics copy() {
+		RunningStatistics copy = new RunningStatistics();
+		values.forEach((value, occurrences) -> copy.values.put(value, occurrences.clone()));
+		copy.count = count;
+		copy.sum = sum;
+		return copy;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s{count=%d, sum=%d, min=%d, average=%f, max=%d}", getClass().getSimpleName(), getCount(), getSum(), getMin(),
+				getAverage(), getMax());
+	}
+}
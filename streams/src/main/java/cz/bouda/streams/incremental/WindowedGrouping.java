@@ -0,0 +1,154 @@
+package cz.bouda.streams.incremental;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.*;
+
+/*
+ * IncrementalGrouping over the elements added within a time window, e.g.
+ * the books that arrived in the last five minutes per topic. Timestamps are
+ * in milliseconds:
+ * 
+ * - tumbling: fixed, non-overlapping windows [n * size, (n + 1) * size); the
+ *   statistics start empty in every window and the last completed window
+ *   stays queryable
+ * - sliding: the elements added during the last size milliseconds; expired
+ *   ones are taken back out one by one, so only the window's events are kept,
+ *   never the whole collection
+ * 
+ * Removing an element retracts its add if that is still inside the window,
+ * otherwise it has already left the window and nothing changes. Timestamps
+ * must not go back before the current tumbling window; sliding windows expire
+ * events from the oldest end, so their timestamps must not go back at all.
+ */
+public class WindowedGrouping<T, K extends Enum<K>> {
+
+	private static class Event<T> {
+		final long timestamp;
+		final T element;
+
+		Event(long timestamp, T element) {
+			this.timestamp = timestamp;
+			this.element = element;
+		}
+	}
+
+	private final boolean sliding;
+
+	private final long size;
+
+	private final Supplier<IncrementalGrouping<T, K>> factory;
+
+	private final ArrayDeque<Event<T>> events = new ArrayDeque<>();
+
+	private IncrementalGrouping<T, K> current;
+
+	private IncrementalGrouping<T, K> previous;
+
+	private long windowStart = Long.MIN_VALUE;
+
+	private long lastTime = Long.MIN_VALUE;
+
+	private WindowedGrouping(boolean sliding, long size, TimeUnit unit, Class<K> type, Function<? super T, K> classifier,
+			ToIntFunction<? super T> value) {
+		this.size = unit.toMillis(size);
+		if (this.size < 1) {
+			throw new IllegalArgumentException("Window size must be at least 1ms");
+		}
+		this.sliding = sliding;
+		this.factory = () -> new IncrementalGrouping<>(type, classifier, value);
+		this.current = factory.get();
+		this.previous = factory.get();
+	}
+
+	public static <T, K extends Enum<K>> WindowedGrouping<T, K> tumbling(long size, TimeUnit unit, Class<K> type,
+			Function<? super T, K> classifier, ToIntFunction<? super T> value) {
+		return new WindowedGrouping<>(false, size, unit, type, classifier, value);
+	}
+
+	public static <T, K extends Enum<K>> WindowedGrouping<T, K> sliding(long size, TimeUnit unit, Class<K> type,
+			Function<? super T, K> classifier, ToIntFunction<? super T> value) {
+		return new WindowedGrouping<>(true, size, unit, type, classifier, value);
+	}
+
+	public synchronized void added(T element, long timestamp) {
+		advance(timestamp);
+		events.addLast(new Event<>(timestamp, element));
+		current.add(element);
+	}
+
+	public synchronized void removed(T element, long timestamp) {
+		advance(timestamp);
+		Iterator<Event<T>> it = events.descendingIterator();
+		while (it.hasNext()) {
+			if (it.next().element == element) {
+				it.remove();
+				current.remove(element);
+				return;
+			}
+		}
+	}
+
+	/*
+	 * Moves the window to the given time without an event, call it before a
+	 * query so that expired elements are gone.
+	 */
+	public synchronized void advance(long now) {
+		if (windowStart != Long.MIN_VALUE && now < windowStart) {
+			throw new IllegalArgumentException("Time " + now + " is before the window starting at " + windowStart);
+		}
+
+		if (sliding) {
+			if (now < lastTime) {
+				throw new IllegalArgumentException("Time " + now + " is before the last time " + lastTime);
+			}
+			lastTime = now;
+			windowStart = now - size + 1;
+			while (!events.isEmpty() && events.peekFirst().timestamp < windowStart) {
+				current.remove(events.pollFirst().element);
+			}
+			return;
+		}
+
+		long start = Math.floorDiv(now, size) * size;
+		if (windowStart == Long.MIN_VALUE) {
+			windowStart = start;
+		} else if (start > windowStart) {
+			previous = start == windowStart + size ? current : factory.get();
+			current = factory.get();
+			events.clear();
+			windowStart = start;
+		}
+	}
+
+	public synchronized long getWindowStart() {
+		return windowStart;
+	}
+
+	public synchronized EnumMap<K, Long> counts() {
+		return current.counts();
+	}
+
+	public synchronized EnumMap<K, RunningStatistics> statistics() {
+		return current.statistics();
+	}
+
+	/*
+	 * Tumbling windows only: the window right before the current one.
+	 */
+	public synchronized EnumMap<K, Long> previousCounts() {
+		checkTumbling();
+		return previous.counts();
+	}
+
+	public synchronized EnumMap<K, RunningStatistics> previousStatistics() {
+		checkTumbling();
+		return previous.statistics();
+	}
+
+	private void checkTumbling() {
+		if (sliding) {
+			throw new IllegalStateException("Sliding windows have no previous window");
+		}
+	}
+}
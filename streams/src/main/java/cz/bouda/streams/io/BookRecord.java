@@ -0,0 +1,66 @@
+package cz.bouda.streams.io;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import cz.bouda.streams.domain.*;
+
+/*
+ * Lazy view of a book record. Authors are resolved against the file's
+ * shared author table, so equal authors are the same Author instance.
+ */
+public class BookRecord {
+
+	private static final Topic[] TOPICS = Topic.values();
+
+	private final ByteBuffer buffer;
+
+	private final int position;
+
+	private final List<Author> authors;
+
+	BookRecord(ByteBuffer buffer, int position, List<Author> authors) {
+		this.buffer = buffer;
+		this.position = position;
+		this.authors = authors;
+	}
+
+	public Topic topic() {
+		return TOPICS[buffer.getInt(position)];
+	}
+
+	public int authorCount() {
+		return buffer.getInt(position + 4);
+	}
+
+	public int authorId(int i) {
+		if (i < 0 || i >= authorCount()) {
+			throw new IndexOutOfBoundsException("Author: " + i + ", count: " + authorCount());
+		}
+		return buffer.getInt(position + 8 + 4 * i);
+	}
+
+	public Author author(int i) {
+		return authors.get(authorId(i));
+	}
+
+	public List<Author> authors() {
+		int n = authorCount();
+		List<Author> result = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			result.add(author(i));
+		}
+		return result;
+	}
+
+	public Book toBook() {
+		Book book = new Book(topic());
+		book.setAuthors(authors());
+		return book;
+	}
+
+	@Override
+	public String toString() {
+		return toBook().toString();
+	}
+}
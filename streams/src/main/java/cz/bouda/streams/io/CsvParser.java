@@ -0,0 +1,104 @@
+package cz.bouda.streams.io;
+
+import java.util.*;
+import java.util.function.Function;
+
+import cz.bouda.streams.domain.*;
+
+/*
+ * CSV records, see TextFormat.CSV.
+ */
+abstract class CsvParser<T> extends LineParser<T> {
+
+	/*
+	 * Reads the next field into scratch and consumes its trailing comma.
+	 * False when the line has no more fields.
+	 */
+	protected boolean field() {
+		if (pos > end) {
+			return false;
+		}
+		clearScratch();
+		if (pos < end && peek() == '"') {
+			pos++;
+			while (true) {
+				if (pos >= end) {
+					throw error("unterminated quote");
+				}
+				byte b = buffer.get(pos++);
+				if (b == '"') {
+					if (pos < end && peek() == '"') {
+						append('"');
+						pos++;
+					} else {
+						break;
+					}
+				} else {
+					append(b);
+				}
+			}
+			if (pos < end && peek() != ',') {
+				throw error("expected ','");
+			}
+		} else {
+			int start = pos;
+			while (pos < end && peek() != ',') {
+				pos++;
+			}
+			appendRange(start, pos);
+		}
+		pos++;
+		return true;
+	}
+
+	protected void requireField() {
+		if (!field()) {
+			throw error("missing field");
+		}
+	}
+
+	protected int intField() {
+		int value = parseInt();
+		skipWhitespace();
+		if (pos < end && peek() != ',') {
+			throw error("expected ','");
+		}
+		pos++;
+		return value;
+	}
+
+	static class Persons extends CsvParser<Person> {
+
+		@Override
+		Person parse() {
+			requireField();
+			String name = scratchString();
+			return new Person(name, intField());
+		}
+	}
+
+	static class Books extends CsvParser<Book> {
+
+		private static final Topic[] TOPICS = Topic.values();
+
+		private static final byte[][] TOPIC_NAMES = names(TOPICS);
+
+		private final Function<String, Author> authors;
+
+		Books(Function<String, Author> authors) {
+			this.authors = authors;
+		}
+
+		@Override
+		Book parse() {
+			requireField();
+			Book book = new Book(scratchEnum(TOPICS, TOPIC_NAMES));
+			List<Author> bookAuthors = new ArrayList<>(2);
+			while (field()) {
+				bookAuthors.add(authors.apply(scratchString()));
+			}
+			book.setAuthors(bookAuthors);
+			return book;
+		}
+	}
+}
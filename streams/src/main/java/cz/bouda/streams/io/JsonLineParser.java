@@ -0,0 +1,277 @@
+package cz.bouda.streams.io;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+import cz.bouda.streams.domain.*;
+
+/*
+ * One flat JSON object per line, see TextFormat.JSON_LINES. Only the shapes
+ * the records need are parsed, values of unknown keys are skipped.
+ */
+abstract class JsonLineParser<T> extends LineParser<T> {
+
+	/*
+	 * Reads the object's keys one by one and hands each to value(), which
+	 * returns false for keys it does not know.
+	 */
+	protected void object() {
+		expect('{');
+		skipWhitespace();
+		if (pos < end && peek() == '}') {
+			pos++;
+			return;
+		}
+		while (true) {
+			string();
+			expect(':');
+			skipWhitespace();
+			if (!value()) {
+				skipValue();
+			}
+			skipWhitespace();
+			if (pos < end && peek() == ',') {
+				pos++;
+				continue;
+			}
+			expect('}');
+			return;
+		}
+	}
+
+	/*
+	 * Called with the key in scratch, positioned at its value.
+	 */
+	abstract boolean value();
+
+	/*
+	 * Reads a string, unescaped, into scratch.
+	 */
+	protected void string() {
+		expect('"');
+		clearScratch();
+		while (true) {
+			if (pos >= end) {
+				throw error("unterminated string");
+			}
+			byte b = buffer.get(pos++);
+			if (b == '"') {
+				return;
+			}
+			if (b != '\\') {
+				append(b);
+				continue;
+			}
+			if (pos >= end) {
+				throw error("unterminated escape");
+			}
+			byte escaped = buffer.get(pos++);
+			switch (escaped) {
+			case 'b':
+				append('\b');
+				break;
+			case 'f':
+				append('\f');
+				break;
+			case 'n':
+				append('\n');
+				break;
+			case 'r':
+				append('\r');
+				break;
+			case 't':
+				append('\t');
+				break;
+			case 'u':
+				appendCodePoint(unicodeEscape());
+				break;
+			default:
+				append(escaped);
+			}
+		}
+	}
+
+	protected void skipValue() {
+		skipWhitespace();
+		if (pos >= end) {
+			throw error("missing value");
+		}
+		byte b = peek();
+		if (b == '"') {
+			string();
+			return;
+		}
+		if (b == '{' || b == '[') {
+			int depth = 0;
+			do {
+				if (pos >= end) {
+					throw error("unterminated " + (char) b);
+				}
+				byte c = peek();
+				if (c == '"') {
+					string();
+					continue;
+				}
+				if (c == '{' || c == '[') {
+					depth++;
+				} else if (c == '}' || c == ']') {
+					depth--;
+				}
+				pos++;
+			} while (depth > 0);
+			return;
+		}
+		while (pos < end && peek() != ',' && peek() != '}' && peek() != ']' && peek() != ' ') {
+			pos++;
+		}
+	}
+
+	protected static byte[] key(String key) {
+		return key.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private int unicodeEscape() {
+		if (pos + 4 > end) {
+			throw error("truncated \\u escape");
+		}
+		int value = 0;
+		for (int i = 0; i < 4; i++) {
+			int digit = Character.digit(buffer.get(pos++), 16);
+			if (digit < 0) {
+				throw error("bad \\u escape");
+			}
+			value = value * 16 + digit;
+		}
+		if (Character.isHighSurrogate((char) value) && pos + 6 <= end && buffer.get(pos) == '\\' && buffer.get(pos + 1) == 'u') {
+			int mark = pos;
+			pos += 2;
+			int low = unicodeEscape();
+			if (Character.isLowSurrogate((char) low)) {
+				return Character.toCodePoint((char) value, (char) low);
+			}
+			pos = mark;
+		}
+		return value;
+	}
+
+	private void appendCodePoint(int codePoint) {
+		if (codePoint < 0x80) {
+			append(codePoint);
+		} else if (codePoint < 0x800) {
+			append(0xc0 | codePoint >> 6);
+			append(0x80 | codePoint & 0x3f);
+		} else if (codePoint < 0x10000) {
+			append(0xe0 | codePoint >> 12);
+			append(0x80 | codePoint >> 6 & 0x3f);
+			append(0x80 | codePoint & 0x3f);
+		} else {
+			append(0xf0 | codePoint >> 18);
+			append(0x80 | codePoint >> 12 & 0x3f);
+			append(0x80 | codePoint >> 6 & 0x3f);
+			append(0x80 | codePoint & 0x3f);
+		}
+	}
+
+	static class Persons extends JsonLineParser<Person> {
+
+		private static final byte[] NAME = key("name");
+
+		private static final byte[] AGE = key("age");
+
+		private String name;
+
+		private int age;
+
+		private boolean hasAge;
+
+		@Override
+		Person parse() {
+			name = null;
+			hasAge = false;
+			object();
+			if (name == null || !hasAge) {
+				throw error("person needs name and age");
+			}
+			return new Person(name, age);
+		}
+
+		@Override
+		boolean value() {
+			if (scratchEquals(NAME)) {
+				string();
+				name = scratchString();
+				return true;
+			}
+			if (scratchEquals(AGE)) {
+				age = parseInt();
+				hasAge = true;
+				return true;
+			}
+			return false;
+		}
+	}
+
+	static class Books extends JsonLineParser<Book> {
+
+		private static final Topic[] TOPICS = Topic.values();
+
+		private static final byte[][] TOPIC_NAMES = names(TOPICS);
+
+		private static final byte[] TOPIC = key("topic");
+
+		private static final byte[] AUTHORS = key("authors");
+
+		private final Function<String, Author> authors;
+
+		private Topic topic;
+
+		private List<Author> bookAuthors;
+
+		Books(Function<String, Author> authors) {
+			this.authors = authors;
+		}
+
+		@Override
+		Book parse() {
+			topic = null;
+			bookAuthors = new ArrayList<>(2);
+			object();
+			if (topic == null) {
+				throw error("book needs a topic");
+			}
+			Book book = new Book(topic);
+			book.setAuthors(bookAuthors);
+			return book;
+		}
+
+		@Override
+		boolean value() {
+			if (scratchEquals(TOPIC)) {
+				string();
+				topic = scratchEnum(TOPICS, TOPIC_NAMES);
+				return true;
+			}
+			if (scratchEquals(AUTHORS)) {
+				expect('[');
+				skipWhitespace();
+				if (pos < end && peek() == ']') {
+					pos++;
+					return true;
+				}
+				while (true) {
+					string();
+					bookAuthors.add(authors.apply(scratchString()));
+					skipWhitespace();
+					if (pos < end && peek() == ',') {
+						pos++;
+						continue;
+					}
+					expect(']');
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package cz.bouda.streams.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Parses one record from the bytes [from, to) of a buffer, without turning
+ * the line into a String first: numbers and enum constants are read from the
+ * bytes directly and only field values are decoded. Parsers keep scratch
+ * state, every spliterator uses its own instance.
+ */
+abstract class LineParser<T> {
+
+	protected ByteBuffer buffer;
+
+	protected int pos;
+
+	protected int end;
+
+	private int start;
+
+	private byte[] scratch = new byte[64];
+
+	protected int length;
+
+	T parse(ByteBuffer buffer, int from, int to) {
+		this.buffer = buffer;
+		this.pos = from;
+		this.start = from;
+		this.end = to;
+		return parse();
+	}
+
+	abstract T parse();
+
+	protected boolean atEnd() {
+		return pos >= end;
+	}
+
+	protected byte peek() {
+		return buffer.get(pos);
+	}
+
+	protected void skipWhitespace() {
+		while (pos < end && (buffer.get(pos) == ' ' || buffer.get(pos) == '\t')) {
+			pos++;
+		}
+	}
+
+	protected void expect(char c) {
+		skipWhitespace();
+		if (pos >= end || buffer.get(pos) != c) {
+			throw error("expected '" + c + "'");
+		}
+		pos++;
+	}
+
+	protected int parseInt() {
+		skipWhitespace();
+		boolean negative = pos < end && buffer.get(pos) == '-';
+		if (negative) {
+			pos++;
+		}
+		int start = pos;
+		long value = 0;
+		while (pos < end && buffer.get(pos) >= '0' && buffer.get(pos) <= '9') {
+			value = value * 10 + (buffer.get(pos++) - '0');
+			if (value > Integer.MAX_VALUE + 1L) {
+				throw error("number out of range");
+			}
+		}
+		if (pos == start) {
+			throw error("expected a number");
+		}
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE) {
+			throw error("number out of range");
+		}
+		return (int) value;
+	}
+
+	/*
+	 * Scratch holds decoded bytes of the current field, see scratchString().
+	 */
+	protected void clearScratch() {
+		length = 0;
+	}
+
+	protected void append(int b) {
+		if (length == scratch.length) {
+			byte[] grown = new byte[scratch.length * 2];
+			System.arraycopy(scratch, 0, grown, 0, length);
+			scratch = grown;
+		}
+		scratch[length++] = (byte) b;
+	}
+
+	protected void appendRange(int from, int to) {
+		for (int i = from; i < to; i++) {
+			append(buffer.get(i));
+		}
+	}
+
+	protected String scratchString() {
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+	protected boolean scratchEquals(byte[] value) {
+		if (value.length != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (scratch[i] != value[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * The constant whose name equals the scratch bytes, no String involved.
+	 */
+	protected <E extends Enum<E>> E scratchEnum(E[] values, byte[][] names) {
+		for (int i = 0; i < names.length; i++) {
+			if (scratchEquals(names[i])) {
+				return values[i];
+			}
+		}
+		throw error("unknown constant " + scratchString());
+	}
+
+	static byte[][] names(Enum<?>[] values) {
+		byte[][] names = new byte[values.length][];
+		for (int i = 0; i < values.length; i++) {
+			names[i] = values[i].name().getBytes(StandardCharsets.US_ASCII);
+		}
+		return names;
+	}
+
+	protected IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at column " + (pos - start + 1));
+	}
+}
@@ -0,0 +1,174 @@
+package cz.bouda.streams.io;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Spliterator;
+import java.util.function.*;
+
+/*
+ * Spliterator over the lines in the bytes [from, to) of a file. Splitting
+ * picks the middle of the range and moves it to the next line start, which
+ * reads a few bytes at most, so chunks split evenly however the file is
+ * going to be traversed, unlike Files.lines() which only splits by buffering
+ * lines. Traversal maps the chunk in windows of WINDOW bytes and parses
+ * lines straight from the mapping. A line longer than the window doubles
+ * it, up to the 2 GB a single mapping can hold; a longer line fails with
+ * UncheckedIOException.
+ */
+class LineSpliterator<T> implements Spliterator<T> {
+
+	static final long WINDOW = 1 << 24;
+
+	static final long MIN_SPLIT = 1 << 16;
+
+	private final FileChannel channel;
+
+	private final Supplier<LineParser<T>> parsers;
+
+	private LineParser<T> parser;
+
+	private long from;
+
+	private final long to;
+
+	private ByteBuffer window;
+
+	private long windowStart;
+
+	private long windowEnd;
+
+	LineSpliterator(FileChannel channel, long from, long to, Supplier<LineParser<T>> parsers) {
+		this.channel = channel;
+		this.from = from;
+		this.to = to;
+		this.parsers = parsers;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		while (from < to) {
+			T record = next();
+			if (record != null) {
+				action.accept(record);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super T> action) {
+		while (from < to) {
+			T record = next();
+			if (record != null) {
+				action.accept(record);
+			}
+		}
+	}
+
+	@Override
+	public Spliterator<T> trySplit() {
+		if (to - from < 2 * MIN_SPLIT) {
+			return null;
+		}
+		long mid = lineStart(from + (to - from) / 2);
+		if (mid >= to) {
+			return null;
+		}
+		LineSpliterator<T> prefix = new LineSpliterator<>(channel, from, mid, parsers);
+		from = mid;
+		window = null;
+		return prefix;
+	}
+
+	/*
+	 * Bytes, not lines, left. Good enough for the framework to decide how
+	 * deep to split.
+	 */
+	@Override
+	public long estimateSize() {
+		return to - from;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL | IMMUTABLE;
+	}
+
+	/*
+	 * Parses the line at from and moves past it, null for a blank line.
+	 */
+	private T next() {
+		if (window == null || from >= windowEnd) {
+			map(from, WINDOW);
+		}
+		int start = (int) (from - windowStart);
+		int limit = (int) (windowEnd - windowStart);
+		int newline = start;
+		while (newline < limit && window.get(newline) != '\n') {
+			newline++;
+		}
+		if (newline == limit && windowEnd < to) {
+			if (limit == Integer.MAX_VALUE) {
+				throw new UncheckedIOException(new IOException("Line too long at byte " + from + ": no newline in " + limit + " bytes"));
+			}
+			map(from, Math.min(2L * limit, Integer.MAX_VALUE));
+			return null;
+		}
+		long lineStart = from;
+		from = windowStart + Math.min(newline + 1, limit);
+		int lineEnd = newline > start && window.get(newline - 1) == '\r' ? newline - 1 : newline;
+		if (lineEnd == start) {
+			return null;
+		}
+		if (parser == null) {
+			parser = parsers.get();
+		}
+		try {
+			return parser.parse(window, start, lineEnd);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Malformed line at byte " + lineStart + ": " + e.getMessage(), e);
+		}
+	}
+
+	private void map(long start, long size) {
+		try {
+			window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size, to - start));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		windowStart = start;
+		windowEnd = start + window.limit();
+	}
+
+	/*
+	 * Offset of the first line starting at or after position, to if there is
+	 * none.
+	 */
+	private long lineStart(long position) {
+		if (position == 0) {
+			return 0;
+		}
+		ByteBuffer probe = ByteBuffer.allocate(4096);
+		long offset = position - 1;
+		try {
+			while (offset < to) {
+				probe.clear();
+				int read = channel.read(probe, offset);
+				if (read <= 0) {
+					return to;
+				}
+				for (int i = 0; i < read; i++) {
+					if (probe.get(i) == '\n') {
+						return Math.min(offset + i + 1, to);
+					}
+				}
+				offset += read;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return to;
+	}
+}
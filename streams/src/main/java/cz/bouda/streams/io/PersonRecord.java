@@ -0,0 +1,48 @@
+package cz.bouda.streams.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import cz.bouda.streams.domain.Person;
+
+/*
+ * Lazy view of a person record. Reading the age does not touch the name,
+ * the name is decoded on first access.
+ */
+public class PersonRecord {
+
+	private final ByteBuffer buffer;
+
+	private final int position;
+
+	private String name;
+
+	PersonRecord(ByteBuffer buffer, int position) {
+		this.buffer = buffer;
+		this.position = position;
+	}
+
+	public int age() {
+		return buffer.getInt(position);
+	}
+
+	public String name() {
+		if (name == null) {
+			ByteBuffer view = buffer.duplicate();
+			view.position(position + 4);
+			byte[] bytes = new byte[view.getInt()];
+			view.get(bytes);
+			name = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return name;
+	}
+
+	public Person toPerson() {
+		return new Person(name(), age());
+	}
+
+	@Override
+	public String toString() {
+		return name();
+	}
+}
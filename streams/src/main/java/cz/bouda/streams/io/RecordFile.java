@@ -0,0 +1,141 @@
+package cz.bouda.streams.io;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import cz.bouda.streams.domain.Author;
+
+/*
+ * Read side of the RecordFormat. The file is never loaded as a whole: record
+ * offsets and records are memory mapped in windows on demand, so files larger
+ * than 2 GB work and only the pages a stream touches are read.
+ * 
+ * 	try (RecordFile file = RecordFile.open(path)) {
+ * 		double average = file.persons().parallel().mapToInt(PersonRecord::age).average().orElse(0);
+ * 	}
+ */
+public class RecordFile implements AutoCloseable {
+
+	private static final int INDEX_SEGMENT = 1 << 27;
+
+	private final FileChannel channel;
+
+	private final int kind;
+
+	private final long count;
+
+	private final long recordsEnd;
+
+	private final LongBuffer[] index;
+
+	private final List<Author> authors;
+
+	private RecordFile(FileChannel channel) throws IOException {
+		this.channel = channel;
+		long size = channel.size();
+		if (size < RecordFormat.HEADER_SIZE + RecordFormat.FOOTER_SIZE) {
+			throw new IOException("Not a record file, too short: " + size);
+		}
+		ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, RecordFormat.HEADER_SIZE);
+		ByteBuffer footer = channel.map(MapMode.READ_ONLY, size - RecordFormat.FOOTER_SIZE, RecordFormat.FOOTER_SIZE);
+		if (header.getInt(0) != RecordFormat.MAGIC || footer.getInt(28) != RecordFormat.MAGIC) {
+			throw new IOException("Not a record file, bad magic");
+		}
+		if (header.getInt(4) != RecordFormat.VERSION) {
+			throw new IOException("Unsupported record file version: " + header.getInt(4));
+		}
+		this.kind = header.getInt(8);
+		this.count = footer.getLong(0);
+		long authorsOffset = footer.getLong(8);
+		long indexOffset = footer.getLong(16);
+		this.recordsEnd = authorsOffset < 0 ? indexOffset : authorsOffset;
+
+		int segments = (int) ((count + INDEX_SEGMENT - 1) / INDEX_SEGMENT);
+		this.index = new LongBuffer[segments];
+		for (int i = 0; i < segments; i++) {
+			long entries = Math.min(INDEX_SEGMENT, count - (long) i * INDEX_SEGMENT);
+			index[i] = channel.map(MapMode.READ_ONLY, indexOffset + (long) i * INDEX_SEGMENT * 8, entries * 8).asLongBuffer();
+		}
+		this.authors = authorsOffset < 0 ? Collections.emptyList() : readAuthors(authorsOffset, indexOffset - authorsOffset);
+	}
+
+	public static RecordFile open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			return new RecordFile(channel);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public boolean isPersons() {
+		return kind == RecordFormat.PERSON;
+	}
+
+	public boolean isBooks() {
+		return kind == RecordFormat.BOOK;
+	}
+
+	/*
+	 * Every distinct author once, books refer to them by position.
+	 */
+	public List<Author> getAuthors() {
+		return authors;
+	}
+
+	public Stream<PersonRecord> persons() {
+		checkKind(RecordFormat.PERSON);
+		return StreamSupport.stream(new RecordSpliterator<>(this, 0, count, PersonRecord::new), false);
+	}
+
+	public Stream<BookRecord> books() {
+		checkKind(RecordFormat.BOOK);
+		return StreamSupport.stream(new RecordSpliterator<>(this, 0, count, (buffer, position) -> new BookRecord(buffer, position, authors)), false);
+	}
+
+	long offset(long record) {
+		return record == count ? recordsEnd : index[(int) (record / INDEX_SEGMENT)].get((int) (record % INDEX_SEGMENT));
+	}
+
+	ByteBuffer map(long position, long size) {
+		try {
+			return channel.map(MapMode.READ_ONLY, position, size);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private List<Author> readAuthors(long offset, long size) {
+		ByteBuffer buffer = map(offset, size);
+		int n = buffer.getInt();
+		List<Author> result = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			byte[] name = new byte[buffer.getInt()];
+			buffer.get(name);
+			result.add(new Author(new String(name, StandardCharsets.UTF_8)));
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	private void checkKind(int expected) {
+		if (kind != expected) {
+			throw new IllegalStateException("File holds " + (kind == RecordFormat.PERSON ? "persons" : "books"));
+		}
+	}
+}
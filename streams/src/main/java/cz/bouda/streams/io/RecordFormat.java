@@ -0,0 +1,33 @@
+package cz.bouda.streams.io;
+
+/*
+ * Binary layout shared by RecordWriter and RecordFile. All numbers are big
+ * endian, strings are an int length followed by UTF-8 bytes.
+ * 
+ * 	header   int magic, int version, int kind
+ * 	records  person: int age, string name
+ * 	         book:   int topic ordinal, int n, n x int author id
+ * 	authors  int n, n x string name                  (books only)
+ * 	index    count x long record offset
+ * 	footer   long count, long authors offset (-1 for persons), long index offset, int kind, int magic
+ * 
+ * The index gives every record's start, so a file can be split on record
+ * boundaries in O(1) and a record's length is the distance to the next one.
+ */
+final class RecordFormat {
+
+	static final int MAGIC = 0x5354524d;
+
+	static final int VERSION = 1;
+
+	static final int PERSON = 1;
+
+	static final int BOOK = 2;
+
+	static final int HEADER_SIZE = 12;
+
+	static final int FOOTER_SIZE = 32;
+
+	private RecordFormat() {
+	}
+}
@@ -0,0 +1,94 @@
+package cz.bouda.streams.io;
+
+import java.nio.ByteBuffer;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/*
+ * Spliterator over the records [from, to) of a RecordFile. Splitting halves
+ * the record range using the offset index, so it is exact and O(1), and the
+ * stream is SIZED and SUBSIZED. Traversal maps the file in windows of
+ * WINDOW bytes and hands out record views positioned in the current window.
+ */
+class RecordSpliterator<T> implements Spliterator<T> {
+
+	interface Decoder<T> {
+		T decode(ByteBuffer buffer, int position);
+	}
+
+	static final long WINDOW = 1 << 26;
+
+	private final RecordFile file;
+
+	private final Decoder<T> decoder;
+
+	private long from;
+
+	private final long to;
+
+	private ByteBuffer window;
+
+	private long windowStart;
+
+	private long windowEnd;
+
+	RecordSpliterator(RecordFile file, long from, long to, Decoder<T> decoder) {
+		this.file = file;
+		this.from = from;
+		this.to = to;
+		this.decoder = decoder;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		if (from >= to) {
+			return false;
+		}
+		action.accept(next());
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super T> action) {
+		while (from < to) {
+			action.accept(next());
+		}
+	}
+
+	@Override
+	public Spliterator<T> trySplit() {
+		long remaining = to - from;
+		if (remaining < 2) {
+			return null;
+		}
+		long mid = from + remaining / 2;
+		RecordSpliterator<T> prefix = new RecordSpliterator<>(file, from, mid, decoder);
+		from = mid;
+		window = null;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return to - from;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+	}
+
+	private T next() {
+		long start = file.offset(from);
+		long end = file.offset(from + 1);
+		if (window == null || start < windowStart || end > windowEnd) {
+			long last = file.offset(to);
+			long size = Math.max(end - start, Math.min(WINDOW, last - start));
+			window = file.map(start, size);
+			windowStart = start;
+			windowEnd = start + size;
+		}
+		from++;
+		return decoder.decode(window, (int) (start - windowStart));
+	}
+}
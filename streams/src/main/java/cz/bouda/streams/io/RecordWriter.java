@@ -0,0 +1,142 @@
+package cz.bouda.streams.io;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import cz.bouda.streams.domain.*;
+
+/*
+ * Writes persons or books in the RecordFormat layout. Authors are
+ * deduplicated by name and written once, books only keep their ids. Record
+ * offsets are spooled to a temporary file, so writing needs constant heap
+ * regardless of the number of records.
+ */
+public class RecordWriter<T> implements AutoCloseable {
+
+	private final int kind;
+
+	private final DataOutputStream out;
+
+	private final Path indexFile;
+
+	private final DataOutputStream index;
+
+	private final Map<String, Integer> authorIds = new HashMap<>();
+
+	private final List<String> authors = new ArrayList<>();
+
+	private long position;
+
+	private long count;
+
+	private RecordWriter(Path file, int kind) throws IOException {
+		this.kind = kind;
+		this.indexFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".idx");
+		DataOutputStream index = null;
+		DataOutputStream out = null;
+		try {
+			index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile), 1 << 16));
+			out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+			out.writeInt(RecordFormat.MAGIC);
+			out.writeInt(RecordFormat.VERSION);
+			out.writeInt(kind);
+		} catch (IOException | RuntimeException e) {
+			if (out != null) {
+				out.close();
+			}
+			if (index != null) {
+				index.close();
+			}
+			Files.deleteIfExists(indexFile);
+			throw e;
+		}
+		this.index = index;
+		this.out = out;
+		position = RecordFormat.HEADER_SIZE;
+	}
+
+	public static RecordWriter<Person> persons(Path file) throws IOException {
+		return new RecordWriter<>(file, RecordFormat.PERSON);
+	}
+
+	public static RecordWriter<Book> books(Path file) throws IOException {
+		return new RecordWriter<>(file, RecordFormat.BOOK);
+	}
+
+	public void write(T record) throws IOException {
+		index.writeLong(position);
+		count++;
+		if (kind == RecordFormat.PERSON) {
+			Person person = (Person) record;
+			out.writeInt(person.age);
+			position += 4 + writeString(person.name);
+		} else {
+			Book book = (Book) record;
+			List<Author> bookAuthors = book.getAuthors() == null ? Collections.emptyList() : book.getAuthors();
+			out.writeInt(book.getTopic().ordinal());
+			out.writeInt(bookAuthors.size());
+			for (Author author : bookAuthors) {
+				out.writeInt(authorId(author));
+			}
+			position += 8 + 4L * bookAuthors.size();
+		}
+	}
+
+	public void writeAll(Iterable<? extends T> records) throws IOException {
+		for (T record : records) {
+			write(record);
+		}
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			long authorsOffset = -1;
+			if (kind == RecordFormat.BOOK) {
+				authorsOffset = position;
+				out.writeInt(authors.size());
+				position += 4;
+				for (String author : authors) {
+					position += writeString(author);
+				}
+			}
+
+			index.close();
+			long indexOffset = position;
+			Files.copy(indexFile, out);
+
+			out.writeLong(count);
+			out.writeLong(authorsOffset);
+			out.writeLong(indexOffset);
+			out.writeInt(kind);
+			out.writeInt(RecordFormat.MAGIC);
+		} finally {
+			out.close();
+			index.close();
+			Files.deleteIfExists(indexFile);
+		}
+	}
+
+	private int authorId(Author author) {
+		Integer id = authorIds.get(author.getName());
+		if (id == null) {
+			id = authors.size();
+			authors.add(author.getName());
+			authorIds.put(author.getName(), id);
+		}
+		return id;
+	}
+
+	private int writeString(String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		return 4 + bytes.length;
+	}
+}
@@ -0,0 +1,63 @@
+package cz.bouda.streams.io;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.Function;
+
+import cz.bouda.streams.domain.*;
+
+/*
+ * Line oriented text layouts read by TextRecordFile, UTF-8, one record per
+ * line, blank lines are skipped.
+ * 
+ * 	CSV         person: name,age
+ * 	            book:   topic,author,author,...
+ * 	            fields containing commas or quotes are quoted, "" is a quote
+ * 	JSON_LINES  person: {"name":"Max","age":18}
+ * 	            book:   {"topic":"MASTERING_LAMBDAS","authors":["Adam Bien"]}
+ * 	            other keys are ignored
+ */
+public enum TextFormat {
+
+	CSV {
+		@Override
+		LineParser<Person> persons() {
+			return new CsvParser.Persons();
+		}
+
+		@Override
+		LineParser<Book> books(Function<String, Author> authors) {
+			return new CsvParser.Books(authors);
+		}
+	},
+
+	JSON_LINES {
+		@Override
+		LineParser<Person> persons() {
+			return new JsonLineParser.Persons();
+		}
+
+		@Override
+		LineParser<Book> books(Function<String, Author> authors) {
+			return new JsonLineParser.Books(authors);
+		}
+	};
+
+	/*
+	 * CSV for .csv, JSON_LINES for .jsonl and .ndjson.
+	 */
+	public static TextFormat of(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		if (name.endsWith(".csv")) {
+			return CSV;
+		}
+		if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+			return JSON_LINES;
+		}
+		throw new IllegalArgumentException("Unknown text format: " + file);
+	}
+
+	abstract LineParser<Person> persons();
+
+	abstract LineParser<Book> books(Function<String, Author> authors);
+}
@@ -0,0 +1,71 @@
+package cz.bouda.streams.io;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+import cz.bouda.streams.domain.*;
+
+/*
+ * Persons or books read from CSV or JSON-lines text. The file is split into
+ * chunks at line boundaries and every chunk is memory mapped and parsed on
+ * its own, so a parallel stream parses on all cores instead of waiting for
+ * a single reader thread. Lines are parsed from the mapped bytes, only field
+ * values become Strings.
+ * 
+ * 	try (TextRecordFile file = TextRecordFile.open(path)) {
+ * 		Map<Topic, Long> number = file.books().parallel().collect(groupingBy(Book::getTopic, counting()));
+ * 	}
+ */
+public class TextRecordFile implements AutoCloseable {
+
+	private final FileChannel channel;
+
+	private final TextFormat format;
+
+	private final ConcurrentMap<String, Author> authors = new ConcurrentHashMap<>();
+
+	private TextRecordFile(FileChannel channel, TextFormat format) {
+		this.channel = channel;
+		this.format = format;
+	}
+
+	public static TextRecordFile open(Path file) throws IOException {
+		return open(file, TextFormat.of(file));
+	}
+
+	public static TextRecordFile open(Path file, TextFormat format) throws IOException {
+		return new TextRecordFile(FileChannel.open(file, StandardOpenOption.READ), format);
+	}
+
+	public TextFormat getFormat() {
+		return format;
+	}
+
+	public long size() throws IOException {
+		return channel.size();
+	}
+
+	public Stream<Person> persons() throws IOException {
+		return StreamSupport.stream(new LineSpliterator<>(channel, 0, channel.size(), format::persons), false);
+	}
+
+	/*
+	 * Books of all streams of this file share one Author instance per name.
+	 */
+	public Stream<Book> books() throws IOException {
+		return StreamSupport.stream(new LineSpliterator<>(channel, 0, channel.size(), () -> format.books(this::author)), false);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private Author author(String name) {
+		Author author = authors.get(name);
+		return author != null ? author : authors.computeIfAbsent(name, Author::new);
+	}
+}
@@ -0,0 +1,194 @@
+package cz.bouda.streams.parallel;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.*;
+
+/*
+ * Chooses between a sequential and a parallel run for every execution of a
+ * named pipeline. Each run is timed and the cost per element is kept per
+ * pipeline, so the next run can estimate its total work from the size of
+ * its source:
+ * 
+ * 	int sum = adaptive.execute("sumOfAges", persons, s -> s.mapToInt(p -> p.age).sum());
+ * 	System.out.println(adaptive.lastPlan("sumOfAges"));
+ * 
+ * A pipeline runs in parallel only when its estimated sequential work is at
+ * least minParallelWork; splitting and combining cost more than they save
+ * below that. Parallel runs split the source no finer than chunks of about
+ * TASK_WORK nanoseconds of work each.
+ * 
+ * The cost is only learned from sequential runs: the wall time of a
+ * parallel run includes forking, combining and idle workers, and would keep
+ * a cheap pipeline parallel forever. So a pipeline runs sequentially until
+ * it has been measured, and every RECALIBRATE-th run that would go parallel
+ * runs sequentially instead to catch changes in its cost.
+ */
+public class AdaptiveExecution {
+
+	public static final long DEFAULT_MIN_PARALLEL_WORK = TimeUnit.MICROSECONDS.toNanos(500);
+
+	static final long TASK_WORK = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/*
+	 * Smaller runs are dominated by fixed costs, warm-up and lambda linkage,
+	 * and tell nothing about the cost per element.
+	 */
+	static final long MIN_MEASURED_SIZE = 1024;
+
+	static final int RECALIBRATE = 16;
+
+	/*
+	 * Weight of the newest measurement in the moving average.
+	 */
+	static final double ALPHA = 0.3;
+
+	private final ForkJoinPool pool;
+
+	private final long minParallelWork;
+
+	private final ConcurrentMap<String, Profile> profiles = new ConcurrentHashMap<>();
+
+	public AdaptiveExecution() {
+		this(ForkJoinPool.commonPool(), DEFAULT_MIN_PARALLEL_WORK);
+	}
+
+	/*
+	 * Parallel runs execute in the given pool, see StreamExecutor.
+	 */
+	public AdaptiveExecution(ForkJoinPool pool, long minParallelWork) {
+		this.pool = pool;
+		this.minParallelWork = minParallelWork;
+	}
+
+	public <T, R> R execute(String pipeline, Collection<T> source, Function<Stream<T>, R> terminal) {
+		return execute(pipeline, source.spliterator(), terminal);
+	}
+
+	public <T, R> R execute(String pipeline, Spliterator<T> source, Function<Stream<T>, R> terminal) {
+		long size = source.getExactSizeIfKnown();
+		if (size < 0 && source.estimateSize() != Long.MAX_VALUE) {
+			size = source.estimateSize();
+		}
+		Profile profile = profiles.computeIfAbsent(pipeline, name -> new Profile());
+		ExecutionPlan plan = plan(pipeline, profile, size);
+		if (plan.isParallel() && profile.recalibrate()) {
+			plan = sequential(pipeline, size, plan.getNanosPerElement(), "measuring, every " + RECALIBRATE + "th parallel run is sequential");
+		}
+		profile.last = plan;
+
+		long start = System.nanoTime();
+		R result;
+		if (plan.isParallel()) {
+			Stream<T> stream = StreamSupport.stream(new MinSplitSpliterator<>(source, plan.getMinSplit()), true);
+			boolean inPool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() == pool : pool == ForkJoinPool.commonPool();
+			result = inPool ? terminal.apply(stream) : pool.submit(() -> terminal.apply(stream)).join();
+		} else {
+			result = terminal.apply(StreamSupport.stream(source, false));
+		}
+		profile.record(plan, System.nanoTime() - start);
+		return result;
+	}
+
+	/*
+	 * The plan the next run of the pipeline over size elements would get,
+	 * without running it. Pass -1 for an unknown size.
+	 */
+	public ExecutionPlan plan(String pipeline, long size) {
+		Profile profile = profiles.get(pipeline);
+		return plan(pipeline, profile == null ? new Profile() : profile, size);
+	}
+
+	/*
+	 * The plan of the latest run, null if the pipeline never ran.
+	 */
+	public ExecutionPlan lastPlan(String pipeline) {
+		Profile profile = profiles.get(pipeline);
+		return profile == null ? null : profile.last;
+	}
+
+	public void reset(String pipeline) {
+		profiles.remove(pipeline);
+	}
+
+	private ExecutionPlan plan(String pipeline, Profile profile, long size) {
+		double cost;
+		long lastWork;
+		synchronized (profile) {
+			cost = profile.nanosPerElement;
+			lastWork = profile.lastWork;
+		}
+		int parallelism = pool.getParallelism();
+		if (parallelism < 2) {
+			return sequential(pipeline, size, cost, "pool parallelism is " + parallelism);
+		}
+		if (size >= 0 && size < 2) {
+			return sequential(pipeline, size, cost, "nothing to split");
+		}
+		if (size < 0) {
+			return lastWork < 0 ? sequential(pipeline, size, cost, "size unknown, no measurement yet")
+					: decide(pipeline, size, cost, lastWork, parallelism, "size unknown, work of the previous run");
+		}
+		if (Double.isNaN(cost)) {
+			return sequential(pipeline, size, cost, size < MIN_MEASURED_SIZE ? "no measurement yet" : "no measurement yet, measuring");
+		}
+		return decide(pipeline, size, cost, (long) (size * cost), parallelism,
+				String.format("%d elements at %.1f ns", size, cost));
+	}
+
+	private ExecutionPlan decide(String pipeline, long size, double cost, long work, int parallelism, String estimate) {
+		if (work < minParallelWork) {
+			return sequential(pipeline, size, cost, "estimated work " + micros(work) + " below " + micros(minParallelWork) + ", " + estimate);
+		}
+		long minSplit = 1;
+		if (size > 0) {
+			minSplit = Double.isNaN(cost) || cost <= 0 ? size / (4L * parallelism) : (long) (TASK_WORK / cost);
+			minSplit = Math.max(1, Math.min(minSplit, size / (4L * parallelism)));
+		}
+		return parallel(pipeline, size, cost, minSplit, "estimated work " + micros(work) + ", " + estimate);
+	}
+
+	private static ExecutionPlan sequential(String pipeline, long size, double cost, String reason) {
+		return new ExecutionPlan(pipeline, ExecutionPlan.Mode.SEQUENTIAL, size, cost, 0, reason);
+	}
+
+	private static ExecutionPlan parallel(String pipeline, long size, double cost, long minSplit, String reason) {
+		return new ExecutionPlan(pipeline, ExecutionPlan.Mode.PARALLEL, size, cost, Math.max(1, minSplit), reason);
+	}
+
+	private static String micros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos) + " us";
+	}
+
+	/*
+	 * Cost per element and total work of the sequential runs. The work of the
+	 * last one is kept for sources that cannot tell their size.
+	 */
+	private static class Profile {
+
+		private double nanosPerElement = Double.NaN;
+
+		private long lastWork = -1;
+
+		private int parallelRuns;
+
+		private volatile ExecutionPlan last;
+
+		synchronized boolean recalibrate() {
+			return ++parallelRuns % RECALIBRATE == 0;
+		}
+
+		synchronized void record(ExecutionPlan plan, long elapsed) {
+			if (plan.isParallel()) {
+				return;
+			}
+			lastWork = elapsed;
+			if (plan.getSize() < MIN_MEASURED_SIZE) {
+				return;
+			}
+			double cost = (double) elapsed / plan.getSize();
+			nanosPerElement = Double.isNaN(nanosPerElement) ? cost : ALPHA * cost + (1 - ALPHA) * nanosPerElement;
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package cz.bouda.streams.parallel;
+
+/*
+ * What AdaptiveExecution decided for one run of a pipeline, and why. The
+ * cost is the measured sequential cost per element, NaN before the first
+ * measurement.
+ */
+public class ExecutionPlan {
+
+	public enum Mode {
+		SEQUENTIAL, PARALLEL
+	}
+
+	private final String pipeline;
+	private final Mode mode;
+	private final long size;
+	private final double nanosPerElement;
+	private final long minSplit;
+	private final String reason;
+
+	ExecutionPlan(String pipeline, Mode mode, long size, double nanosPerElement, long minSplit, String reason) {
+		this.pipeline = pipeline;
+		this.mode = mode;
+		this.size = size;
+		this.nanosPerElement = nanosPerElement;
+		this.minSplit = minSplit;
+		this.reason = reason;
+	}
+
+	public String getPipeline() {
+		return pipeline;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public boolean isParallel() {
+		return mode == Mode.PARALLEL;
+	}
+
+	/*
+	 * Elements reported by the source, -1 if it could not tell.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	public double getNanosPerElement() {
+		return nanosPerElement;
+	}
+
+	/*
+	 * Smallest chunk a parallel run splits the source into, 0 when
+	 * sequential.
+	 */
+	public long getMinSplit() {
+		return minSplit;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	@Override
+	public String toString() {
+		return "ExecutionPlan [ pipeline=" + pipeline + ", mode=" + mode + ", size=" + size + (minSplit > 0 ? ", minSplit=" + minSplit : "")
+				+ ", reason=" + reason + " ]";
+	}
+}
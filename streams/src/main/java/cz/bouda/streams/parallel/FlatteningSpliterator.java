@@ -0,0 +1,141 @@
+package cz.bouda.streams.parallel;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/*
+ * Sized and splittable replacement for flatMap(p -> children(p).stream())
+ * over parents with child lists, like Foo.bars. The child counts are summed
+ * up front, so the spliterator knows the exact number of children and splits
+ * the range of children in half by count, even inside a single parent when
+ * its child list is RandomAccess. A few parents with millions of children
+ * each then still spread over all threads, which Java 8's flatMap cannot do.
+ * 
+ * 	FlatteningSpliterator.stream(foos, f -> f.bars, true).forEach(...)
+ * 
+ * Child lists must not change while a stream runs.
+ */
+public class FlatteningSpliterator<C> implements Spliterator<C> {
+
+	private final List<? extends List<C>> children;
+
+	private final long[] offsets;
+
+	private long from;
+
+	private final long to;
+
+	/*
+	 * Position of tryAdvance in the current parent, null until the first
+	 * call and after a split. Walking it keeps LinkedList children linear.
+	 */
+	private ListIterator<C> cursor;
+
+	private FlatteningSpliterator(List<? extends List<C>> children, long[] offsets, long from, long to) {
+		this.children = children;
+		this.offsets = offsets;
+		this.from = from;
+		this.to = to;
+	}
+
+	public static <P, C> FlatteningSpliterator<C> of(Collection<P> parents, Function<? super P, ? extends List<C>> children) {
+		List<List<C>> lists = new ArrayList<>(parents.size());
+		long[] offsets = new long[parents.size() + 1];
+		int i = 0;
+		for (P parent : parents) {
+			List<C> list = children.apply(parent);
+			lists.add(list);
+			offsets[i + 1] = offsets[i] + list.size();
+			i++;
+		}
+		return new FlatteningSpliterator<>(lists, offsets, 0, offsets[lists.size()]);
+	}
+
+	public static <P, C> Stream<C> stream(Collection<P> parents, Function<? super P, ? extends List<C>> children, boolean parallel) {
+		return StreamSupport.stream(of(parents, children), parallel);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super C> action) {
+		if (from >= to) {
+			return false;
+		}
+		if (cursor == null || !cursor.hasNext()) {
+			int parent = parentOf(from);
+			cursor = children.get(parent).listIterator((int) (from - offsets[parent]));
+		}
+		action.accept(cursor.next());
+		from++;
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super C> action) {
+		if (from >= to) {
+			return;
+		}
+		int parent = parentOf(from);
+		while (from < to) {
+			List<C> list = children.get(parent);
+			int start = (int) (from - offsets[parent]);
+			int end = (int) (Math.min(to, offsets[parent + 1]) - offsets[parent]);
+			List<C> range = start == 0 && end == list.size() ? list : list.subList(start, end);
+			range.forEach(action);
+			from += end - start;
+			parent++;
+		}
+	}
+
+	/*
+	 * Splits at half the remaining children. If that falls inside a parent
+	 * whose list is not RandomAccess, the split moves to the nearest parent
+	 * boundary instead.
+	 */
+	@Override
+	public Spliterator<C> trySplit() {
+		if (to - from < 2) {
+			return null;
+		}
+		long mid = from + (to - from) / 2;
+		int parent = parentOf(mid);
+		if (mid != offsets[parent] && !(children.get(parent) instanceof RandomAccess)) {
+			mid = mid - offsets[parent] < offsets[parent + 1] - mid ? offsets[parent] : offsets[parent + 1];
+			if (mid <= from || mid >= to) {
+				return null;
+			}
+		}
+		FlatteningSpliterator<C> prefix = new FlatteningSpliterator<>(children, offsets, from, mid);
+		from = mid;
+		cursor = null;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return to - from;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | SIZED | SUBSIZED;
+	}
+
+	/*
+	 * The parent holding the child at the given index, skipping parents
+	 * without children.
+	 */
+	private int parentOf(long index) {
+		int low = 0;
+		int high = offsets.length - 2;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (offsets[mid] <= index) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+}
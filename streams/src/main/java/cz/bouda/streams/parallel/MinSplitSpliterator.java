@@ -0,0 +1,73 @@
+package cz.bouda.streams.parallel;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.*;
+
+/*
+ * Wraps a spliterator and refuses to split it into chunks smaller than
+ * minSplit elements. The default spliterators keep splitting down to a
+ * handful of elements, which is too fine grained when the per-element work
+ * is cheap.
+ */
+public class MinSplitSpliterator<T> implements Spliterator<T> {
+
+	private final Spliterator<T> delegate;
+
+	private final long minSplit;
+
+	public MinSplitSpliterator(Spliterator<T> delegate, long minSplit) {
+		if (minSplit < 1) {
+			throw new IllegalArgumentException("minSplit must be positive: " + minSplit);
+		}
+		this.delegate = delegate;
+		this.minSplit = minSplit;
+	}
+
+	public static <T> Stream<T> parallelStream(Collection<T> source, long minSplit) {
+		return StreamSupport.stream(new MinSplitSpliterator<>(source.spliterator(), minSplit), true);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		return delegate.tryAdvance(action);
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super T> action) {
+		delegate.forEachRemaining(action);
+	}
+
+	/*
+	 * Splitting halves the estimate, so stop once both halves would drop
+	 * below the threshold.
+	 */
+	@Override
+	public Spliterator<T> trySplit() {
+		if (delegate.estimateSize() < 2 * minSplit) {
+			return null;
+		}
+		Spliterator<T> prefix = delegate.trySplit();
+		return prefix == null ? null : new MinSplitSpliterator<>(prefix, minSplit);
+	}
+
+	@Override
+	public long estimateSize() {
+		return delegate.estimateSize();
+	}
+
+	@Override
+	public long getExactSizeIfKnown() {
+		return delegate.getExactSizeIfKnown();
+	}
+
+	@Override
+	public int characteristics() {
+		return delegate.characteristics();
+	}
+
+	@Override
+	public Comparator<? super T> getComparator() {
+		return delegate.getComparator();
+	}
+}
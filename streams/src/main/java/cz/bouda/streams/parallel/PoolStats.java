@@ -0,0 +1,68 @@
+package cz.bouda.streams.parallel;
+
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * Point-in-time snapshot of a ForkJoinPool. The counters are estimates
+ * taken without locking, see the ForkJoinPool getters.
+ */
+public class PoolStats {
+
+	private final String name;
+	private final int parallelism;
+	private final int poolSize;
+	private final int activeThreads;
+	private final int runningThreads;
+	private final long queuedTasks;
+	private final int queuedSubmissions;
+	private final long steals;
+
+	public PoolStats(String name, ForkJoinPool pool) {
+		this.name = name;
+		this.parallelism = pool.getParallelism();
+		this.poolSize = pool.getPoolSize();
+		this.activeThreads = pool.getActiveThreadCount();
+		this.runningThreads = pool.getRunningThreadCount();
+		this.queuedTasks = pool.getQueuedTaskCount();
+		this.queuedSubmissions = pool.getQueuedSubmissionCount();
+		this.steals = pool.getStealCount();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public int getActiveThreads() {
+		return activeThreads;
+	}
+
+	public int getRunningThreads() {
+		return runningThreads;
+	}
+
+	public long getQueuedTasks() {
+		return queuedTasks;
+	}
+
+	public int getQueuedSubmissions() {
+		return queuedSubmissions;
+	}
+
+	public long getSteals() {
+		return steals;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [ parallelism=%d, size=%d, active=%d, running=%d, queued=%d, submissions=%d, steals=%d ]", name, parallelism,
+				poolSize, activeThreads, runningThreads, queuedTasks, queuedSubmissions, steals);
+	}
+}
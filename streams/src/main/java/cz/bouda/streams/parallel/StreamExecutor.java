@@ -0,0 +1,86 @@
+package cz.bouda.streams.parallel;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * Runs parallel pipelines on named, separately sized ForkJoinPools instead
+ * of ForkJoinPool.commonPool(). A parallel stream whose terminal operation is
+ * started from a ForkJoinPool worker forks its subtasks into that pool, so
+ * submitting the whole pipeline to a dedicated pool isolates it:
+ * 
+ * 	executor.register("reports", 4);
+ * 	int sum = executor.execute("reports", () -> persons.parallelStream().mapToInt(p -> p.age).sum());
+ * 
+ * Use MinSplitSpliterator.parallelStream(...) for the source to control the
+ * split granularity.
+ */
+public class StreamExecutor implements AutoCloseable {
+
+	private final ConcurrentMap<String, ForkJoinPool> pools = new ConcurrentHashMap<>();
+
+	public ForkJoinPool register(String name, int parallelism) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism, threadFactory(name), null, false);
+		ForkJoinPool existing = pools.putIfAbsent(name, pool);
+		if (existing != null) {
+			pool.shutdown();
+			throw new IllegalStateException("Pool already registered: " + name);
+		}
+		return pool;
+	}
+
+	public ForkJoinPool pool(String name) {
+		ForkJoinPool pool = pools.get(name);
+		if (pool == null) {
+			throw new IllegalArgumentException("Unknown pool: " + name);
+		}
+		return pool;
+	}
+
+	/*
+	 * Runs the pipeline on the named pool and waits for the result. Exceptions
+	 * thrown by the pipeline are rethrown unchecked.
+	 */
+	public <R> R execute(String name, Supplier<R> pipeline) {
+		return pool(name).submit(pipeline::get).join();
+	}
+
+	public void run(String name, Runnable pipeline) {
+		pool(name).submit(pipeline).join();
+	}
+
+	public <R> ForkJoinTask<R> submit(String name, Supplier<R> pipeline) {
+		return pool(name).submit(pipeline::get);
+	}
+
+	public PoolStats stats(String name) {
+		return new PoolStats(name, pool(name));
+	}
+
+	/*
+	 * Snapshot of all registered pools plus the common pool, by name.
+	 */
+	public List<PoolStats> stats() {
+		List<PoolStats> stats = new ArrayList<>();
+		new TreeMap<>(pools).forEach((name, pool) -> stats.add(new PoolStats(name, pool)));
+		stats.add(new PoolStats("common", ForkJoinPool.commonPool()));
+		return stats;
+	}
+
+	@Override
+	public void close() {
+		pools.values().forEach(ForkJoinPool::shutdown);
+		pools.clear();
+	}
+
+	private static ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory(String name) {
+		AtomicInteger counter = new AtomicInteger();
+		return pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName(name + "-worker-" + counter.incrementAndGet());
+			return thread;
+		};
+	}
+}
@@ -0,0 +1,167 @@
+package cz.bouda.streams.pipeline;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/*
+ * Declarative stream pipeline that fixes the stage order before running,
+ * the way Basics.why_order_matters_2 and why_order_matters_order_2 do by
+ * hand. Stages are recorded, then every filter is moved in front of the
+ * stages it commutes with:
+ * 
+ * - sorted: sorting and filtering commute, filtering first sorts less
+ * - transparentMap: a map declared not to change the outcome of any later
+ *   filter, i.e. p(f(x)) == p(x)
+ * 
+ * Ordinary maps change the element type or value and stay barriers, as do
+ * peek, distinct, limit and skip. Filters keep their relative order.
+ * 
+ * 	Pipeline<String, String> pipeline = Pipeline.from(() -> Stream.of("d2", "a2", "b1"))
+ * 			.sorted("sort", Comparator.naturalOrder())
+ * 			.transparentMap("upper", String::toUpperCase)
+ * 			.filter("a only", s -> s.toUpperCase().startsWith("A"));
+ * 	pipeline.plan();    // [a only, sort, upper]
+ * 	pipeline.stream().forEach(System.out::println);
+ * 	pipeline.stats();   // elements in and out per stage
+ */
+public class Pipeline<S, T> {
+
+	private final Supplier<? extends Stream<S>> source;
+
+	private final List<Stage> stages;
+
+	private volatile List<Stage> plan;
+
+	private volatile Stage.Counter[] lastRun;
+
+	private Pipeline(Supplier<? extends Stream<S>> source, List<Stage> stages) {
+		this.source = source;
+		this.stages = stages;
+	}
+
+	public static <S> Pipeline<S, S> from(Supplier<? extends Stream<S>> source) {
+		return new Pipeline<>(source, Collections.emptyList());
+	}
+
+	public static <S> Pipeline<S, S> from(Collection<S> source) {
+		return from(source::stream);
+	}
+
+	@SuppressWarnings("unchecked")
+	public Pipeline<S, T> filter(String name, Predicate<? super T> predicate) {
+		return add(new Stage(name, Stage.Kind.FILTER, s -> s.filter(e -> predicate.test((T) e))));
+	}
+
+	@SuppressWarnings("unchecked")
+	public <R> Pipeline<S, R> map(String name, Function<? super T, ? extends R> mapper) {
+		return (Pipeline<S, R>) add(new Stage(name, Stage.Kind.MAP, s -> s.map(e -> mapper.apply((T) e))));
+	}
+
+	/*
+	 * A map that later filters may be moved in front of. Only declare it when
+	 * every following filter gives the same answer before and after it.
+	 */
+	@SuppressWarnings("unchecked")
+	public Pipeline<S, T> transparentMap(String name, UnaryOperator<T> mapper) {
+		return add(new Stage(name, Stage.Kind.TRANSPARENT_MAP, s -> s.map(e -> mapper.apply((T) e))));
+	}
+
+	@SuppressWarnings("unchecked")
+	public Pipeline<S, T> sorted(String name, Comparator<? super T> comparator) {
+		return add(new Stage(name, Stage.Kind.SORTED, s -> s.sorted((a, b) -> comparator.compare((T) a, (T) b))));
+	}
+
+	@SuppressWarnings("unchecked")
+	public Pipeline<S, T> peek(String name, Consumer<? super T> action) {
+		return add(new Stage(name, Stage.Kind.BARRIER, s -> s.peek(e -> action.accept((T) e))));
+	}
+
+	public Pipeline<S, T> distinct(String name) {
+		return add(new Stage(name, Stage.Kind.BARRIER, Stream::distinct));
+	}
+
+	public Pipeline<S, T> limit(String name, long maxSize) {
+		return add(new Stage(name, Stage.Kind.BARRIER, s -> s.limit(maxSize)));
+	}
+
+	public Pipeline<S, T> skip(String name, long n) {
+		return add(new Stage(name, Stage.Kind.BARRIER, s -> s.skip(n)));
+	}
+
+	/*
+	 * Stage names in the order they were declared.
+	 */
+	public List<String> declared() {
+		return names(stages);
+	}
+
+	/*
+	 * Stage names in the order they are executed.
+	 */
+	public List<String> plan() {
+		return names(optimized());
+	}
+
+	/*
+	 * Builds a new stream over the source following the plan. Every stream
+	 * counts into its own counters, so concurrent runs, of this pipeline or
+	 * of pipelines derived from the same one, do not mix their counts.
+	 */
+	@SuppressWarnings("unchecked")
+	public Stream<T> stream() {
+		List<Stage> stages = optimized();
+		Stage.Counter[] counters = new Stage.Counter[stages.size()];
+		Stream<Object> stream = (Stream<Object>) source.get();
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new Stage.Counter();
+			stream = stages.get(i).apply(stream, counters[i]);
+		}
+		lastRun = counters;
+		return (Stream<T>) stream;
+	}
+
+	public Stream<T> parallelStream() {
+		return stream().parallel();
+	}
+
+	/*
+	 * Element counts per stage of the stream this pipeline built last, in
+	 * plan order, zeros before the first one.
+	 */
+	public List<StageStats> stats() {
+		List<Stage> stages = optimized();
+		Stage.Counter[] counters = lastRun;
+		List<StageStats> stats = new ArrayList<>(stages.size());
+		for (int i = 0; i < stages.size(); i++) {
+			stats.add(stages.get(i).stats(counters == null ? null : counters[i]));
+		}
+		return stats;
+	}
+
+	private Pipeline<S, T> add(Stage stage) {
+		List<Stage> next = new ArrayList<>(stages);
+		next.add(stage);
+		return new Pipeline<>(source, Collections.unmodifiableList(next));
+	}
+
+	private List<Stage> optimized() {
+		if (plan == null) {
+			List<Stage> reordered = new ArrayList<>(stages);
+			for (int i = 1; i < reordered.size(); i++) {
+				if (reordered.get(i).kind != Stage.Kind.FILTER) {
+					continue;
+				}
+				for (int j = i; j > 0 && reordered.get(j - 1).commutesWithFilter(); j--) {
+					Collections.swap(reordered, j, j - 1);
+				}
+			}
+			plan = Collections.unmodifiableList(reordered);
+		}
+		return plan;
+	}
+
+	private static List<String> names(List<Stage> stages) {
+		return stages.stream().map(stage -> stage.name).collect(Collectors.toList());
+	}
+}
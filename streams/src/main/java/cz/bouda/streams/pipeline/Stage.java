@@ -0,0 +1,57 @@
+package cz.bouda.streams.pipeline;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/*
+ * One recorded pipeline step. Elements are untyped here, Pipeline's
+ * generics guarantee that consecutive stages fit together, and only type
+ * preserving stages are ever moved. Stages are immutable and shared by all
+ * pipelines derived from each other; element counts live in a Counter per
+ * run.
+ */
+class Stage {
+
+	enum Kind {
+		FILTER, MAP, TRANSPARENT_MAP, SORTED, BARRIER
+	}
+
+	final String name;
+
+	final Kind kind;
+
+	private final Function<Stream<Object>, Stream<Object>> operation;
+
+	Stage(String name, Kind kind, Function<Stream<Object>, Stream<Object>> operation) {
+		this.name = name;
+		this.kind = kind;
+		this.operation = operation;
+	}
+
+	/*
+	 * A filter may move in front of this stage without changing the result.
+	 */
+	boolean commutesWithFilter() {
+		return kind == Kind.SORTED || kind == Kind.TRANSPARENT_MAP;
+	}
+
+	Stream<Object> apply(Stream<Object> stream, Counter counter) {
+		return operation.apply(stream.peek(e -> counter.in.increment())).peek(e -> counter.out.increment());
+	}
+
+	StageStats stats(Counter counter) {
+		return new StageStats(name, kind.name().toLowerCase(Locale.ROOT), counter == null ? 0 : counter.in.sum(), counter == null ? 0 : counter.out.sum());
+	}
+
+	/*
+	 * Elements in and out of one stage during one run.
+	 */
+	static final class Counter {
+
+		final LongAdder in = new LongAdder();
+
+		final LongAdder out = new LongAdder();
+	}
+}
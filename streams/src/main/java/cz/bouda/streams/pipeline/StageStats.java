@@ -0,0 +1,40 @@
+package cz.bouda.streams.pipeline;
+
+/*
+ * Elements that entered and left one stage during the last run.
+ */
+public class StageStats {
+
+	private final String name;
+	private final String kind;
+	private final long in;
+	private final long out;
+
+	StageStats(String name, String kind, long in, long out) {
+		this.name = name;
+		this.kind = kind;
+		this.in = in;
+		this.out = out;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getKind() {
+		return kind;
+	}
+
+	public long getIn() {
+		return in;
+	}
+
+	public long getOut() {
+		return out;
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + kind + ") in=" + in + " out=" + out;
+	}
+}
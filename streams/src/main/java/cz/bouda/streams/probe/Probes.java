@@ -0,0 +1,78 @@
+package cz.bouda.streams.probe;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/*
+ * The probes of one pipeline, in the order the stages were registered:
+ * 
+ * 	Probes probes = new Probes("names");
+ * 	StageProbe filter = probes.stage("filter");
+ * 	StageProbe map = probes.stage("map");
+ * 	list.parallelStream().filter(filter.filter(s -> s.startsWith("a"))).map(map.map(String::toUpperCase))...
+ * 	probes.snapshot();
+ * 	probes.commit();
+ * 
+ * commit() emits one Flight Recorder event per stage when JFR is available
+ * (Java 11+, OpenJDK 8u272+) and does nothing otherwise.
+ */
+public class Probes {
+
+	private static final boolean JFR = jfrAvailable();
+
+	private final String pipeline;
+
+	private final int sampleRate;
+
+	private final Map<String, StageProbe> stages = new LinkedHashMap<>();
+
+	public Probes(String pipeline) {
+		this(pipeline, 64);
+	}
+
+	public Probes(String pipeline, int sampleRate) {
+		if (sampleRate < 1) {
+			throw new IllegalArgumentException("sampleRate must be positive: " + sampleRate);
+		}
+		this.pipeline = pipeline;
+		this.sampleRate = sampleRate;
+	}
+
+	public synchronized StageProbe stage(String name) {
+		return stages.computeIfAbsent(name, stage -> new StageProbe(stage, sampleRate));
+	}
+
+	public synchronized List<StageSnapshot> snapshot() {
+		return stages.values().stream().map(StageProbe::snapshot).collect(Collectors.toList());
+	}
+
+	/*
+	 * Emits the current counters as JFR events, returns false when JFR is
+	 * not available in this JVM.
+	 */
+	public boolean commit() {
+		if (!JFR) {
+			return false;
+		}
+		snapshot().forEach(snapshot -> StageEvent.commit(pipeline, snapshot));
+		return true;
+	}
+
+	public synchronized void reset() {
+		stages.values().forEach(StageProbe::reset);
+	}
+
+	@Override
+	public String toString() {
+		return pipeline + snapshot().stream().map(Object::toString).collect(Collectors.joining("\n  ", "\n  ", ""));
+	}
+
+	private static boolean jfrAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package cz.bouda.streams.probe;
+
+import jdk.jfr.*;
+
+/*
+ * Flight Recorder event with the counters of one stage. Only loaded when
+ * the running JVM has the jdk.jfr API, see Probes.commit().
+ */
+@Name("cz.bouda.streams.Stage")
+@Label("Stream Stage")
+@Category("Streams")
+@Description("Counters of one probed stream pipeline stage")
+@StackTrace(false)
+class StageEvent extends Event {
+
+	@Label("Pipeline")
+	String pipeline;
+
+	@Label("Stage")
+	String stage;
+
+	@Label("Elements In")
+	long in;
+
+	@Label("Elements Out")
+	long out;
+
+	@Label("Comparisons")
+	long comparisons;
+
+	@Label("Combiner Calls")
+	long combines;
+
+	@Label("CPU Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long cpuTime;
+
+	@Label("Threads")
+	int threads;
+
+	static void commit(String pipeline, StageSnapshot snapshot) {
+		StageEvent event = new StageEvent();
+		if (!event.isEnabled()) {
+			return;
+		}
+		event.pipeline = pipeline;
+		event.stage = snapshot.getStage();
+		event.in = snapshot.getIn();
+		event.out = snapshot.getOut();
+		event.comparisons = snapshot.getComparisons();
+		event.combines = snapshot.getCombines();
+		event.cpuTime = snapshot.getCpuNanos();
+		event.threads = snapshot.getCpuNanosPerThread().size();
+		event.commit();
+	}
+}
@@ -0,0 +1,140 @@
+package cz.bouda.streams.probe;
+
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.*;
+
+/*
+ * Counts what one pipeline stage does without printing from inside the
+ * lambda: elements in and out, comparator and combiner calls, and CPU time
+ * per thread. All counters are striped LongAdders, so threads do not
+ * contend. Reading the thread CPU clock costs far more than a typical lambda,
+ * so it is only read around every sampleRate-th call per thread and scaled up.
+ */
+public class StageProbe {
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	private final String name;
+
+	private final int sampleRate;
+
+	private final LongAdder in = new LongAdder();
+
+	private final LongAdder out = new LongAdder();
+
+	private final LongAdder comparisons = new LongAdder();
+
+	private final LongAdder combines = new LongAdder();
+
+	private final ConcurrentMap<String, LongAdder> cpuNanos = new ConcurrentHashMap<>();
+
+	private final ThreadLocal<int[]> calls = ThreadLocal.withInitial(() -> new int[1]);
+
+	StageProbe(String name, int sampleRate) {
+		this.name = name;
+		this.sampleRate = sampleRate;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public <T> Predicate<T> filter(Predicate<T> predicate) {
+		return t -> {
+			in.increment();
+			long start = startSample();
+			boolean pass = predicate.test(t);
+			endSample(start);
+			if (pass) {
+				out.increment();
+			}
+			return pass;
+		};
+	}
+
+	public <T, R> Function<T, R> map(Function<T, R> mapper) {
+		return t -> {
+			in.increment();
+			long start = startSample();
+			R result = mapper.apply(t);
+			endSample(start);
+			out.increment();
+			return result;
+		};
+	}
+
+	/*
+	 * For forEach: counts elements in, nothing goes out.
+	 */
+	public <T> Consumer<T> consumer(Consumer<T> action) {
+		return t -> {
+			in.increment();
+			long start = startSample();
+			action.accept(t);
+			endSample(start);
+		};
+	}
+
+	public <T> Comparator<T> comparator(Comparator<T> comparator) {
+		return (a, b) -> {
+			comparisons.increment();
+			long start = startSample();
+			int result = comparator.compare(a, b);
+			endSample(start);
+			return result;
+		};
+	}
+
+	public <U, T> BiFunction<U, T, U> accumulator(BiFunction<U, T, U> accumulator) {
+		return (u, t) -> {
+			in.increment();
+			long start = startSample();
+			U result = accumulator.apply(u, t);
+			endSample(start);
+			return result;
+		};
+	}
+
+	public <T> BinaryOperator<T> combiner(BinaryOperator<T> combiner) {
+		return (a, b) -> {
+			combines.increment();
+			long start = startSample();
+			T result = combiner.apply(a, b);
+			endSample(start);
+			return result;
+		};
+	}
+
+	public StageSnapshot snapshot() {
+		Map<String, Long> perThread = new TreeMap<>();
+		cpuNanos.forEach((thread, nanos) -> perThread.put(thread, nanos.sum()));
+		return new StageSnapshot(name, in.sum(), out.sum(), comparisons.sum(), combines.sum(), perThread);
+	}
+
+	public void reset() {
+		in.reset();
+		out.reset();
+		comparisons.reset();
+		combines.reset();
+		cpuNanos.clear();
+	}
+
+	private long startSample() {
+		int[] count = calls.get();
+		if (++count[0] < sampleRate) {
+			return -1;
+		}
+		count[0] = 0;
+		return THREADS.getCurrentThreadCpuTime();
+	}
+
+	private void endSample(long start) {
+		if (start >= 0) {
+			long elapsed = THREADS.getCurrentThreadCpuTime() - start;
+			cpuNanos.computeIfAbsent(Thread.currentThread().getName(), thread -> new LongAdder()).add(elapsed * sampleRate);
+		}
+	}
+}
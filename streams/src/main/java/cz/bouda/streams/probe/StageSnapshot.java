@@ -0,0 +1,60 @@
+package cz.bouda.streams.probe;
+
+import java.util.*;
+
+/*
+ * Counters of one stage at the time of the snapshot. CPU times are
+ * estimates extrapolated from sampled calls.
+ */
+public class StageSnapshot {
+
+	private final String stage;
+	private final long in;
+	private final long out;
+	private final long comparisons;
+	private final long combines;
+	private final Map<String, Long> cpuNanosPerThread;
+
+	StageSnapshot(String stage, long in, long out, long comparisons, long combines, Map<String, Long> cpuNanosPerThread) {
+		this.stage = stage;
+		this.in = in;
+		this.out = out;
+		this.comparisons = comparisons;
+		this.combines = combines;
+		this.cpuNanosPerThread = Collections.unmodifiableMap(cpuNanosPerThread);
+	}
+
+	public String getStage() {
+		return stage;
+	}
+
+	public long getIn() {
+		return in;
+	}
+
+	public long getOut() {
+		return out;
+	}
+
+	public long getComparisons() {
+		return comparisons;
+	}
+
+	public long getCombines() {
+		return combines;
+	}
+
+	public Map<String, Long> getCpuNanosPerThread() {
+		return cpuNanosPerThread;
+	}
+
+	public long getCpuNanos() {
+		return cpuNanosPerThread.values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: in=%d out=%d comparisons=%d combines=%d cpu=%dus threads=%d", stage, in, out, comparisons, combines,
+				getCpuNanos() / 1000, cpuNanosPerThread.size());
+	}
+}
@@ -0,0 +1,79 @@
+package cz.bouda.streams.sketch;
+
+/*
+ * Frequency estimates in depth x width counters. An estimate never
+ * undercounts, and overcounts by more than 2/width of the total count with a
+ * probability of at most 2^-depth. Sketches with the same dimensions merge by
+ * adding their counters.
+ */
+public class CountMinSketch {
+
+	private final int width;
+
+	private final int depth;
+
+	private final long[] counts;
+
+	private long total;
+
+	public CountMinSketch(int width, int depth) {
+		if (width < 1 || depth < 1) {
+			throw new IllegalArgumentException("width and depth must be positive: " + width + " x " + depth);
+		}
+		this.width = width;
+		this.depth = depth;
+		this.counts = new long[width * depth];
+	}
+
+	/*
+	 * Dimensions for an overcount of at most epsilon * total with
+	 * probability 1 - delta.
+	 */
+	public static CountMinSketch withError(double epsilon, double delta) {
+		return new CountMinSketch((int) Math.ceil(2 / epsilon), (int) Math.ceil(Math.log(1 / delta) / Math.log(2)));
+	}
+
+	public void add(Object value) {
+		add(value, 1);
+	}
+
+	public void add(Object value, long count) {
+		long hash = Hashing.hash(value);
+		for (int row = 0; row < depth; row++) {
+			counts[row * width + bucket(hash, row)] += count;
+		}
+		total += count;
+	}
+
+	public long estimate(Object value) {
+		long hash = Hashing.hash(value);
+		long min = Long.MAX_VALUE;
+		for (int row = 0; row < depth; row++) {
+			min = Math.min(min, counts[row * width + bucket(hash, row)]);
+		}
+		return min;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public CountMinSketch merge(CountMinSketch other) {
+		if (other.width != width || other.depth != depth) {
+			throw new IllegalArgumentException("Dimensions " + other.width + " x " + other.depth + " do not match " + width + " x " + depth);
+		}
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		total += other.total;
+		return this;
+	}
+
+	/*
+	 * Row hashes derived from one 64-bit hash (Kirsch-Mitzenmacher).
+	 */
+	private int bucket(long hash, int row) {
+		int combined = (int) hash + row * (int) (hash >>> 32);
+		return (combined & Integer.MAX_VALUE) % width;
+	}
+}
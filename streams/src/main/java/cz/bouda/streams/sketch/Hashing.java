@@ -0,0 +1,43 @@
+package cz.bouda.streams.sketch;
+
+/*
+ * 64-bit hashes for the sketches. Strings are hashed over all their chars,
+ * longs and ints by value, anything else through hashCode(); all of them go
+ * through the MurmurHash3 finalizer so that every bit depends on every input
+ * bit.
+ */
+final class Hashing {
+
+	private Hashing() {
+	}
+
+	static long hash(Object value) {
+		if (value == null) {
+			return mix(0);
+		}
+		if (value instanceof CharSequence) {
+			CharSequence chars = (CharSequence) value;
+			long h = 0x9E3779B97F4A7C15L ^ chars.length();
+			for (int i = 0; i < chars.length(); i++) {
+				h = (h ^ chars.charAt(i)) * 0x100000001B3L;
+			}
+			return mix(h);
+		}
+		if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			return mix(((Number) value).longValue());
+		}
+		if (value instanceof Enum) {
+			return mix(((Enum<?>) value).ordinal() ^ ((long) value.getClass().getName().hashCode() << 32));
+		}
+		return mix(value.hashCode());
+	}
+
+	static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
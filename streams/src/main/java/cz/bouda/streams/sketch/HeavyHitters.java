@@ -0,0 +1,102 @@
+package cz.bouda.streams.sketch;
+
+import java.util.*;
+
+/*
+ * The k most frequent keys of a stream in bounded memory: a CountMinSketch
+ * estimates every key's frequency and only the k keys with the highest
+ * estimates are kept. A key whose occurrences are spread before and after it
+ * entered the candidates is still counted fully, since the sketch saw all of
+ * them; counts are estimates that never undercount.
+ */
+public class HeavyHitters<K> {
+
+	private final int k;
+
+	private final CountMinSketch sketch;
+
+	private final Map<K, Long> candidates = new HashMap<>();
+
+	/*
+	 * Never more than the smallest candidate estimate. Estimates only grow
+	 * between merges, so it stays valid without being updated.
+	 */
+	private long floor;
+
+	public HeavyHitters(int k, int width, int depth) {
+		this(k, new CountMinSketch(width, depth));
+	}
+
+	HeavyHitters(int k, CountMinSketch sketch) {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be positive: " + k);
+		}
+		this.k = k;
+		this.sketch = sketch;
+	}
+
+	public void add(K key) {
+		sketch.add(key);
+		offer(key, sketch.estimate(key));
+	}
+
+	public HeavyHitters<K> merge(HeavyHitters<K> other) {
+		sketch.merge(other.sketch);
+		Set<K> keys = new HashSet<>(candidates.keySet());
+		keys.addAll(other.candidates.keySet());
+		candidates.clear();
+		floor = 0;
+		for (K key : keys) {
+			offer(key, sketch.estimate(key));
+		}
+		return this;
+	}
+
+	/*
+	 * Most frequent first.
+	 */
+	public List<Map.Entry<K, Long>> top() {
+		List<Map.Entry<K, Long>> top = new ArrayList<>();
+		candidates.forEach((key, count) -> top.add(new AbstractMap.SimpleImmutableEntry<>(key, count)));
+		top.sort(Map.Entry.<K, Long> comparingByValue().reversed());
+		return top;
+	}
+
+	public long estimate(K key) {
+		return sketch.estimate(key);
+	}
+
+	public long getTotal() {
+		return sketch.getTotal();
+	}
+
+	/*
+	 * A key that is no candidate and not above the floor is dropped in
+	 * constant time. Only a key above it scans the k candidates for the
+	 * smallest one, which either replaces it or raises the floor to the
+	 * smallest estimate, so the scans are bounded by the replacements and
+	 * the growth of the smallest candidate rather than by the stream.
+	 */
+	private void offer(K key, long estimate) {
+		if (candidates.containsKey(key) || candidates.size() < k) {
+			candidates.put(key, estimate);
+			return;
+		}
+		if (estimate <= floor) {
+			return;
+		}
+		K smallest = null;
+		long smallestCount = Long.MAX_VALUE;
+		for (Map.Entry<K, Long> candidate : candidates.entrySet()) {
+			if (candidate.getValue() < smallestCount) {
+				smallest = candidate.getKey();
+				smallestCount = candidate.getValue();
+			}
+		}
+		floor = smallestCount;
+		if (estimate > smallestCount) {
+			candidates.remove(smallest);
+			candidates.put(key, estimate);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package cz.bouda.streams.sketch;
+
+/*
+ * Distinct count estimate in 2^precision bytes. The standard error is about
+ * 1.04 / sqrt(2^precision), e.g. 0.8% for precision 14 (16 KB). Two sketches
+ * of the same precision merge by taking the register maxima, so partial
+ * results of a parallel stream combine losslessly.
+ */
+public class HyperLogLog {
+
+	private final int precision;
+
+	private final byte[] registers;
+
+	public HyperLogLog(int precision) {
+		if (precision < 4 || precision > 18) {
+			throw new IllegalArgumentException("precision must be in [4, 18]: " + precision);
+		}
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+
+	public void add(Object value) {
+		addHash(Hashing.hash(value));
+	}
+
+	public void addHash(long hash) {
+		int index = (int) (hash >>> (64 - precision));
+		int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), 64 - precision) + 1;
+		if (rank > registers[index]) {
+			registers[index] = (byte) rank;
+		}
+	}
+
+	public HyperLogLog merge(HyperLogLog other) {
+		if (other.precision != precision) {
+			throw new IllegalArgumentException("Precision " + other.precision + " does not match " + precision);
+		}
+		for (int i = 0; i < registers.length; i++) {
+			if (other.registers[i] > registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+		return this;
+	}
+
+	public long estimate() {
+		int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += 1.0 / (1L << register);
+			if (register == 0) {
+				zeros++;
+			}
+		}
+		double alpha = m >= 128 ? 0.7213 / (1 + 1.079 / m) : m == 64 ? 0.709 : m == 32 ? 0.697 : 0.673;
+		double estimate = alpha * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0) {
+			estimate = m * Math.log((double) m / zeros);
+		}
+		return Math.round(estimate);
+	}
+
+	public double standardError() {
+		return 1.04 / Math.sqrt(registers.length);
+	}
+
+	@Override
+	public String toString() {
+		return "HyperLogLog [ estimate=" + estimate() + ", error=" + String.format("%.2f%%", standardError() * 100) + " ]";
+	}
+}
@@ -0,0 +1,92 @@
+package cz.bouda.streams.sketch;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.Collector;
+
+/*
+ * Approximate collectors that run in fixed memory whatever the input size.
+ * Every accumulator is a mergeable sketch, so a parallel stream combines
+ * partial sketches instead of partial maps and the result does not depend on
+ * how the stream was split. Use them when an exact groupingBy/counting map or
+ * a sorted copy for percentiles would not fit, or costs more than the error
+ * is worth.
+ */
+public final class SketchCollectors {
+
+	public static final int DEFAULT_PRECISION = 14;
+
+	public static final double DEFAULT_COMPRESSION = 100;
+
+	private SketchCollectors() {
+	}
+
+	/*
+	 * Approximate count of distinct keys, like
+	 * map(key).distinct().count() without the HashSet.
+	 */
+	public static <T> Collector<T, ?, Long> countingDistinct(Function<? super T, ?> key) {
+		return Collector.of(
+				() -> new HyperLogLog(DEFAULT_PRECISION),
+				(sketch, t) -> sketch.add(key.apply(t)),
+				HyperLogLog::merge,
+				HyperLogLog::estimate,
+				Collector.Characteristics.UNORDERED);
+	}
+
+	public static <T> Collector<T, ?, HyperLogLog> distinct(Function<? super T, ?> key, int precision) {
+		return Collector.of(
+				() -> new HyperLogLog(precision),
+				(sketch, t) -> sketch.add(key.apply(t)),
+				HyperLogLog::merge,
+				Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+	}
+
+	/*
+	 * Approximate groupingBy(key, counting()): query the sketch with
+	 * estimate(key). Overcounts by at most epsilon * n with probability
+	 * 1 - delta.
+	 */
+	public static <T> Collector<T, ?, CountMinSketch> counting(Function<? super T, ?> key, double epsilon, double delta) {
+		return Collector.of(
+				() -> CountMinSketch.withError(epsilon, delta),
+				(sketch, t) -> sketch.add(key.apply(t)),
+				CountMinSketch::merge,
+				Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+	}
+
+	/*
+	 * Approximate TopCollectors.mostFrequent(classifier, k): the k most
+	 * frequent keys with estimated counts, most frequent first, in memory
+	 * bounded by k and the sketch size instead of the number of distinct keys.
+	 */
+	public static <T, K> Collector<T, ?, List<Map.Entry<K, Long>>> heavyHitters(Function<? super T, ? extends K> classifier, int k) {
+		return heavyHitters(classifier, k, 0.001, 0.01);
+	}
+
+	public static <T, K> Collector<T, ?, List<Map.Entry<K, Long>>> heavyHitters(Function<? super T, ? extends K> classifier, int k,
+			double epsilon, double delta) {
+		return Collector.<T, HeavyHitters<K>, List<Map.Entry<K, Long>>> of(
+				() -> new HeavyHitters<>(k, CountMinSketch.withError(epsilon, delta)),
+				(hitters, t) -> hitters.add(classifier.apply(t)),
+				HeavyHitters::merge,
+				HeavyHitters::top,
+				Collector.Characteristics.UNORDERED);
+	}
+
+	/*
+	 * Quantile digest of the mapped values, e.g. summarizingInt extended with
+	 * percentiles: digest.percentile(50), digest.percentile(99).
+	 */
+	public static <T> Collector<T, ?, TDigest> quantiles(ToDoubleFunction<? super T> mapper) {
+		return quantiles(mapper, DEFAULT_COMPRESSION);
+	}
+
+	public static <T> Collector<T, ?, TDigest> quantiles(ToDoubleFunction<? super T> mapper, double compression) {
+		return Collector.of(
+				() -> new TDigest(compression),
+				(digest, t) -> digest.add(mapper.applyAsDouble(t)),
+				TDigest::merge,
+				Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+	}
+}
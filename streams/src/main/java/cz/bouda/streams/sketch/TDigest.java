@@ -0,0 +1,247 @@
+package cz.bouda.streams.sketch;
+
+import java.util.*;
+
+/*
+ * Quantile estimates in O(compression) memory (merging t-digest). Values are
+ * buffered and periodically merged into weighted centroids whose size is
+ * bounded by q(1 - q), so centroids stay small near the tails and the
+ * extreme percentiles are the most accurate ones. Digests merge by feeding
+ * the centroids of one into the other.
+ * 
+ * Compression sorts the buffer in place and merges it with the centroids,
+ * which are already sorted, into a second pair of arrays that is swapped
+ * with the first, so it allocates nothing once the arrays are big enough.
+ */
+public class TDigest {
+
+	private final double compression;
+
+	private double[] means;
+
+	private double[] weights;
+
+	private int centroids;
+
+	private double[] nextMeans;
+
+	private double[] nextWeights;
+
+	private final double[] bufferMeans;
+
+	private final double[] bufferWeights;
+
+	private int buffered;
+
+	private double totalWeight;
+
+	private double min = Double.POSITIVE_INFINITY;
+
+	private double max = Double.NEGATIVE_INFINITY;
+
+	public TDigest(double compression) {
+		if (compression < 10) {
+			throw new IllegalArgumentException("compression must be at least 10: " + compression);
+		}
+		this.compression = compression;
+		this.bufferMeans = new double[(int) Math.ceil(5 * compression)];
+		this.bufferWeights = new double[bufferMeans.length];
+		int capacity = (int) Math.ceil(2 * compression) + bufferMeans.length;
+		this.means = new double[capacity];
+		this.weights = new double[capacity];
+		this.nextMeans = new double[capacity];
+		this.nextWeights = new double[capacity];
+	}
+
+	public void add(double value) {
+		add(value, 1);
+	}
+
+	public void add(double value, double weight) {
+		if (Double.isNaN(value)) {
+			throw new IllegalArgumentException("Cannot add NaN");
+		}
+		if (buffered == bufferMeans.length) {
+			compress();
+		}
+		bufferMeans[buffered] = value;
+		bufferWeights[buffered] = weight;
+		buffered++;
+		totalWeight += weight;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	public TDigest merge(TDigest other) {
+		other.compress();
+		for (int i = 0; i < other.centroids; i++) {
+			if (buffered == bufferMeans.length) {
+				compress();
+			}
+			bufferMeans[buffered] = other.means[i];
+			bufferWeights[buffered] = other.weights[i];
+			buffered++;
+		}
+		totalWeight += other.totalWeight;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		return this;
+	}
+
+	public long size() {
+		return Math.round(totalWeight);
+	}
+
+	public double min() {
+		return totalWeight == 0 ? Double.NaN : min;
+	}
+
+	public double max() {
+		return totalWeight == 0 ? Double.NaN : max;
+	}
+
+	/*
+	 * Value below which the fraction q of the input lies, interpolated
+	 * between centroid centers. NaN for an empty digest.
+	 */
+	public double quantile(double q) {
+		if (q < 0 || q > 1) {
+			throw new IllegalArgumentException("q must be in [0, 1]: " + q);
+		}
+		compress();
+		if (centroids == 0) {
+			return Double.NaN;
+		}
+		if (centroids == 1) {
+			return means[0];
+		}
+		double index = q * totalWeight;
+		if (index <= weights[0] / 2) {
+			return min + (means[0] - min) * index / (weights[0] / 2);
+		}
+		double cumulative = weights[0] / 2;
+		for (int i = 0; i < centroids - 1; i++) {
+			double step = (weights[i] + weights[i + 1]) / 2;
+			if (index <= cumulative + step) {
+				return means[i] + (means[i + 1] - means[i]) * (index - cumulative) / step;
+			}
+			cumulative += step;
+		}
+		double last = weights[centroids - 1] / 2;
+		return means[centroids - 1] + (max - means[centroids - 1]) * Math.min(1, (index - cumulative) / last);
+	}
+
+	public double percentile(double p) {
+		return quantile(p / 100);
+	}
+
+	private void compress() {
+		if (buffered == 0) {
+			return;
+		}
+		sort(bufferMeans, bufferWeights, 0, buffered);
+		int n = centroids + buffered;
+		if (nextMeans.length < n) {
+			nextMeans = new double[n];
+			nextWeights = new double[n];
+		}
+		double total = 0;
+		for (int i = 0; i < centroids; i++) {
+			total += weights[i];
+		}
+		for (int i = 0; i < buffered; i++) {
+			total += bufferWeights[i];
+		}
+
+		double[] merged = nextMeans;
+		double[] mergedWeights = nextWeights;
+		int count = 0;
+		double before = 0;
+		int c = 0;
+		int b = 0;
+		for (int i = 0; i < n; i++) {
+			double mean;
+			double weight;
+			if (b == buffered || c < centroids && means[c] <= bufferMeans[b]) {
+				mean = means[c];
+				weight = weights[c++];
+			} else {
+				mean = bufferMeans[b];
+				weight = bufferWeights[b++];
+			}
+			if (i == 0) {
+				merged[0] = mean;
+				mergedWeights[0] = weight;
+				continue;
+			}
+			double proposed = mergedWeights[count] + weight;
+			double q = (before + proposed / 2) / total;
+			if (proposed <= Math.max(1, 4 * total * q * (1 - q) / compression)) {
+				merged[count] += (mean - merged[count]) * weight / proposed;
+				mergedWeights[count] = proposed;
+			} else {
+				before += mergedWeights[count];
+				count++;
+				merged[count] = mean;
+				mergedWeights[count] = weight;
+			}
+		}
+		buffered = 0;
+		centroids = count + 1;
+		nextMeans = means;
+		nextWeights = weights;
+		means = merged;
+		weights = mergedWeights;
+	}
+
+	/*
+	 * Sorts keys[from, to) in place and moves values along, quicksort with
+	 * insertion sort for short ranges.
+	 */
+	private static void sort(double[] keys, double[] values, int from, int to) {
+		while (to - from > 16) {
+			double pivot = keys[(from + to - 1) >>> 1];
+			int i = from - 1;
+			int j = to;
+			while (true) {
+				do {
+					i++;
+				} while (keys[i] < pivot);
+				do {
+					j--;
+				} while (keys[j] > pivot);
+				if (i >= j) {
+					break;
+				}
+				swap(keys, values, i, j);
+			}
+			if (j + 1 - from < to - j - 1) {
+				sort(keys, values, from, j + 1);
+				from = j + 1;
+			} else {
+				sort(keys, values, j + 1, to);
+				to = j + 1;
+			}
+		}
+		for (int i = from + 1; i < to; i++) {
+			for (int j = i; j > from && keys[j - 1] > keys[j]; j--) {
+				swap(keys, values, j - 1, j);
+			}
+		}
+	}
+
+	private static void swap(double[] keys, double[] values, int i, int j) {
+		double key = keys[i];
+		keys[i] = keys[j];
+		keys[j] = key;
+		double value = values[i];
+		values[i] = values[j];
+		values[j] = value;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TDigest [ size=%d, min=%s, p50=%.2f, p90=%.2f, p99=%.2f, max=%s ]", size(), min(), quantile(0.5),
+				quantile(0.9), quantile(0.99), max());
+	}
+}
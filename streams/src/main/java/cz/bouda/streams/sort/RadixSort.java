@@ -0,0 +1,291 @@
+package cz.bouda.streams.sort;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.*;
+import java.util.stream.*;
+
+/*
+ * Sort stage keyed by a primitive extracted once per element, instead of a
+ * comparator called O(n log n) times. Keys are sorted with a stable LSD radix
+ * sort, one pass per key byte, skipping bytes all keys share (ages 0..150 need
+ * a single pass). Elements with equal keys keep their encounter order unless a
+ * tie breaker is given, which then only sorts within runs of equal keys.
+ * 
+ * - int keys, e.g. Person.age
+ * - string prefixes: the first four chars packed into a long, ties broken by
+ *   the comparator, typically the natural String order
+ * 
+ * Like sorted(), the stage is lazy: the upstream is only collected and
+ * sorted when a terminal operation starts traversing. Parallel streams count
+ * and scatter in chunks on the common pool and break ties of different runs
+ * in parallel.
+ */
+public final class RadixSort {
+
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	private RadixSort() {
+	}
+
+	/*
+	 * Same result as sorted(Comparator.comparingInt(key).thenComparing(tieBreaker)),
+	 * tieBreaker may be null to keep encounter order among equal keys.
+	 */
+	public static <T> Stream<T> sortedByInt(Stream<T> stream, ToIntFunction<? super T> key, Comparator<? super T> tieBreaker) {
+		return deferred(stream, elements -> sortByInt(elements, key, tieBreaker, stream.isParallel()));
+	}
+
+	/*
+	 * Same result as sorted(comparator) when the comparator orders by the
+	 * string first (like String.compareTo) and then by anything else.
+	 */
+	public static <T> Stream<T> sortedByPrefix(Stream<T> stream, Function<? super T, ? extends CharSequence> key, Comparator<? super T> comparator) {
+		return deferred(stream, elements -> sortByPrefix(elements, key, comparator, stream.isParallel()));
+	}
+
+	public static Stream<String> sortedStrings(Stream<String> stream) {
+		return sortedByPrefix(stream, s -> s, Comparator.naturalOrder());
+	}
+
+	/*
+	 * Keys are flipped in the sign bit, so their unsigned order is the signed
+	 * order of the ints.
+	 */
+	public static <T> List<T> sortByInt(List<T> elements, ToIntFunction<? super T> key, Comparator<? super T> tieBreaker, boolean parallel) {
+		int[] keys = new int[elements.size()];
+		int i = 0;
+		for (T element : elements) {
+			keys[i++] = key.applyAsInt(element) ^ Integer.MIN_VALUE;
+		}
+		int[] order = identity(keys.length);
+		boolean inParallel = parallel && keys.length >= PARALLEL_THRESHOLD;
+		sortKeys(keys, order, inParallel);
+		return arrange(elements, order, tieBreaker == null ? null : runs(keys), tieBreaker, inParallel);
+	}
+
+	public static <T> List<T> sortByPrefix(List<T> elements, Function<? super T, ? extends CharSequence> key, Comparator<? super T> comparator,
+			boolean parallel) {
+		long[] keys = new long[elements.size()];
+		int i = 0;
+		for (T element : elements) {
+			keys[i++] = prefix(key.apply(element));
+		}
+		int[] order = identity(keys.length);
+		boolean inParallel = parallel && keys.length >= PARALLEL_THRESHOLD;
+		sortKeys(keys, order, inParallel);
+		return arrange(elements, order, comparator == null ? null : runs(keys), comparator, inParallel);
+	}
+
+	/*
+	 * The sorted stream over a spliterator that is only created, collecting
+	 * and sorting the upstream, when the terminal operation starts.
+	 */
+	private static <T> Stream<T> deferred(Stream<T> stream, UnaryOperator<List<T>> sort) {
+		return StreamSupport.stream(() -> sort.apply(stream.collect(Collectors.toList())).spliterator(),
+				Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED, stream.isParallel())
+				.onClose(stream::close);
+	}
+
+	/*
+	 * The first four UTF-16 chars, padded with zeros. Compared unsigned, the
+	 * order of two prefixes is the order String.compareTo gives, equal
+	 * prefixes need the full comparison.
+	 */
+	static long prefix(CharSequence value) {
+		long prefix = 0;
+		for (int i = 0; i < 4; i++) {
+			prefix = (prefix << 16) | (i < value.length() ? value.charAt(i) : 0);
+		}
+		return prefix;
+	}
+
+	private static int[] identity(int n) {
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		return order;
+	}
+
+	/*
+	 * The elements in the given order, ties broken within the runs of equal
+	 * keys when runs are given.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> List<T> arrange(List<T> elements, int[] order, List<int[]> runs, Comparator<? super T> tieBreaker, boolean parallel) {
+		Object[] source = elements.toArray();
+		Object[] sorted = new Object[order.length];
+		for (int i = 0; i < order.length; i++) {
+			sorted[i] = source[order[i]];
+		}
+		if (runs != null) {
+			Comparator<Object> comparator = (Comparator<Object>) tieBreaker;
+			Stream<int[]> stream = parallel ? runs.parallelStream() : runs.stream();
+			stream.forEach(run -> Arrays.sort(sorted, run[0], run[1], comparator));
+		}
+		return (List<T>) Arrays.asList(sorted);
+	}
+
+	/*
+	 * Stable LSD radix sort of keys, carrying the original positions along.
+	 * On return keys and order are sorted in place.
+	 */
+	private static void sortKeys(int[] keys, int[] order, boolean parallel) {
+		int n = keys.length;
+		int chunks = parallel ? Math.max(1, Math.min(n / 4096, ForkJoinPool.getCommonPoolParallelism() * 4)) : 1;
+		int chunkSize = (n + chunks - 1) / chunks;
+		int[] keysIn = keys;
+		int[] orderIn = order;
+		int[] keysOut = new int[n];
+		int[] orderOut = new int[n];
+
+		for (int shift = 0; shift < 32; shift += 8) {
+			int s = shift;
+			int[] kin = keysIn;
+			int[] oin = orderIn;
+			int[] kout = keysOut;
+			int[] oout = orderOut;
+
+			int[][] counts = new int[chunks][256];
+			chunks(chunks, parallel).forEach(c -> {
+				int[] count = counts[c];
+				for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+					count[(kin[i] >>> s) & 0xFF]++;
+				}
+			});
+
+			int[][] offsets = new int[chunks][256];
+			int offset = 0;
+			boolean single = false;
+			for (int b = 0; b < 256; b++) {
+				int bucket = 0;
+				for (int c = 0; c < chunks; c++) {
+					offsets[c][b] = offset + bucket;
+					bucket += counts[c][b];
+				}
+				single |= bucket == n;
+				offset += bucket;
+			}
+			if (single) {
+				continue;
+			}
+
+			chunks(chunks, parallel).forEach(c -> {
+				int[] next = offsets[c];
+				for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+					int target = next[(kin[i] >>> s) & 0xFF]++;
+					kout[target] = kin[i];
+					oout[target] = oin[i];
+				}
+			});
+
+			keysIn = kout;
+			orderIn = oout;
+			keysOut = kin;
+			orderOut = oin;
+		}
+
+		if (keysIn != keys) {
+			System.arraycopy(keysIn, 0, keys, 0, n);
+			System.arraycopy(orderIn, 0, order, 0, n);
+		}
+	}
+
+	private static void sortKeys(long[] keys, int[] order, boolean parallel) {
+		int n = keys.length;
+		int chunks = parallel ? Math.max(1, Math.min(n / 4096, ForkJoinPool.getCommonPoolParallelism() * 4)) : 1;
+		int chunkSize = (n + chunks - 1) / chunks;
+		long[] keysIn = keys;
+		int[] orderIn = order;
+		long[] keysOut = new long[n];
+		int[] orderOut = new int[n];
+
+		for (int shift = 0; shift < 64; shift += 8) {
+			int s = shift;
+			long[] kin = keysIn;
+			int[] oin = orderIn;
+			long[] kout = keysOut;
+			int[] oout = orderOut;
+
+			int[][] counts = new int[chunks][256];
+			chunks(chunks, parallel).forEach(c -> {
+				int[] count = counts[c];
+				for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+					count[(int) (kin[i] >>> s) & 0xFF]++;
+				}
+			});
+
+			int[][] offsets = new int[chunks][256];
+			int offset = 0;
+			boolean single = false;
+			for (int b = 0; b < 256; b++) {
+				int bucket = 0;
+				for (int c = 0; c < chunks; c++) {
+					offsets[c][b] = offset + bucket;
+					bucket += counts[c][b];
+				}
+				single |= bucket == n;
+				offset += bucket;
+			}
+			if (single) {
+				continue;
+			}
+
+			chunks(chunks, parallel).forEach(c -> {
+				int[] next = offsets[c];
+				for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+					int target = next[(int) (kin[i] >>> s) & 0xFF]++;
+					kout[target] = kin[i];
+					oout[target] = oin[i];
+				}
+			});
+
+			keysIn = kout;
+			orderIn = oout;
+			keysOut = kin;
+			orderOut = oin;
+		}
+
+		if (keysIn != keys) {
+			System.arraycopy(keysIn, 0, keys, 0, n);
+			System.arraycopy(orderIn, 0, order, 0, n);
+		}
+	}
+
+	/*
+	 * Ranges [start, end) of equal sorted keys that hold more than one.
+	 */
+	private static List<int[]> runs(int[] keys) {
+		List<int[]> runs = new ArrayList<>();
+		int start = 0;
+		for (int i = 1; i <= keys.length; i++) {
+			if (i == keys.length || keys[i] != keys[start]) {
+				if (i - start > 1) {
+					runs.add(new int[] { start, i });
+				}
+				start = i;
+			}
+		}
+		return runs;
+	}
+
+	private static List<int[]> runs(long[] keys) {
+		List<int[]> runs = new ArrayList<>();
+		int start = 0;
+		for (int i = 1; i <= keys.length; i++) {
+			if (i == keys.length || keys[i] != keys[start]) {
+				if (i - start > 1) {
+					runs.add(new int[] { start, i });
+				}
+				start = i;
+			}
+		}
+		return runs;
+	}
+
+	private static IntStream chunks(int chunks, boolean parallel) {
+		IntStream range = IntStream.range(0, chunks);
+		return parallel ? range.parallel() : range;
+	}
+}
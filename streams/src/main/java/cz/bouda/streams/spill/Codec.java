@@ -0,0 +1,14 @@
+package cz.bouda.streams.spill;
+
+import java.io.*;
+
+/*
+ * Binary form of the elements written to spill files. Implementations must
+ * read back exactly what they wrote and must not close the streams.
+ */
+public interface Codec<T> {
+
+	void write(DataOutput out, T value) throws IOException;
+
+	T read(DataInput in) throws IOException;
+}
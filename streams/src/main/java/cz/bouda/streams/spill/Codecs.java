@@ -0,0 +1,91 @@
+package cz.bouda.streams.spill;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import cz.bouda.streams.domain.*;
+
+/*
+ * Codecs for the domain types. Strings are an int length followed by UTF-8
+ * bytes as in the io.RecordFormat, so there is no 64 KB limit like with
+ * writeUTF.
+ */
+public final class Codecs {
+
+	private static final Topic[] TOPICS = Topic.values();
+
+	private Codecs() {
+	}
+
+	public static Codec<String> strings() {
+		return new Codec<String>() {
+			@Override
+			public void write(DataOutput out, String value) throws IOException {
+				writeString(out, value);
+			}
+
+			@Override
+			public String read(DataInput in) throws IOException {
+				return readString(in);
+			}
+		};
+	}
+
+	public static Codec<Person> persons() {
+		return new Codec<Person>() {
+			@Override
+			public void write(DataOutput out, Person person) throws IOException {
+				out.writeInt(person.age);
+				writeString(out, person.name);
+			}
+
+			@Override
+			public Person read(DataInput in) throws IOException {
+				int age = in.readInt();
+				return new Person(readString(in), age);
+			}
+		};
+	}
+
+	/*
+	 * Books read back get new Author instances, one per name and book.
+	 */
+	public static Codec<Book> books() {
+		return new Codec<Book>() {
+			@Override
+			public void write(DataOutput out, Book book) throws IOException {
+				List<Author> authors = book.getAuthors() == null ? Collections.emptyList() : book.getAuthors();
+				out.writeByte(book.getTopic().ordinal());
+				out.writeInt(authors.size());
+				for (Author author : authors) {
+					writeString(out, author.getName());
+				}
+			}
+
+			@Override
+			public Book read(DataInput in) throws IOException {
+				Book book = new Book(TOPICS[in.readUnsignedByte()]);
+				int n = in.readInt();
+				List<Author> authors = new ArrayList<>(n);
+				for (int i = 0; i < n; i++) {
+					authors.add(new Author(readString(in)));
+				}
+				book.setAuthors(authors);
+				return book;
+			}
+		};
+	}
+
+	static void writeString(DataOutput out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInput in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
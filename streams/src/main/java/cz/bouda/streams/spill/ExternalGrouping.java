@@ -0,0 +1,258 @@
+package cz.bouda.streams.spill;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/*
+ * groupingBy() with a memory budget of maxInMemory elements. Groups are
+ * built in a map until it holds maxInMemory elements; then all of them are
+ * written to PARTITIONS temporary files by the hash of their key and the map
+ * starts over. At the end every partition is read back one at a time and
+ * folded into one downstream accumulator per key, so while the result is
+ * streamed the heap holds the accumulators of a single partition, not its
+ * elements (unless the downstream collector keeps them, like toList()). A
+ * partition of more than maxInMemory elements and several keys is
+ * partitioned again with a different hash, up to MAX_DEPTH times; a
+ * partition of a single key is folded directly, however large.
+ * Inputs that fit the budget never touch the disk.
+ * 
+ * Elements of a group keep their encounter order. The order of the groups
+ * is unspecified, as with groupingBy(). Close the returned stream unless it
+ * is consumed to the end.
+ */
+public class ExternalGrouping<T> {
+
+	static final int PARTITIONS = 32;
+
+	static final int MAX_DEPTH = 3;
+
+	private final Codec<T> codec;
+
+	private final int maxInMemory;
+
+	private final Path directory;
+
+	public ExternalGrouping(Codec<T> codec, int maxInMemory) {
+		this(codec, maxInMemory, null);
+	}
+
+	public ExternalGrouping(Codec<T> codec, int maxInMemory, Path directory) {
+		if (maxInMemory < 1) {
+			throw new IllegalArgumentException("maxInMemory must be positive: " + maxInMemory);
+		}
+		this.codec = codec;
+		this.maxInMemory = maxInMemory;
+		this.directory = directory;
+	}
+
+	/*
+	 * Same groups as groupingBy(classifier), streamed as entries.
+	 */
+	public <K> Stream<Map.Entry<K, List<T>>> groupingBy(Stream<T> source, Function<? super T, ? extends K> classifier) {
+		return groupingBy(source, classifier, Collectors.toList());
+	}
+
+	/*
+	 * Same groups as groupingBy(classifier, downstream). The downstream
+	 * collector runs on a group once the whole group is known.
+	 */
+	public <K, D> Stream<Map.Entry<K, D>> groupingBy(Stream<T> source, Function<? super T, ? extends K> classifier,
+			Collector<? super T, ?, D> downstream) {
+		SpillDirectory spill = new SpillDirectory(directory);
+		try {
+			Grouper<K> grouper = new Grouper<>(spill, classifier);
+			source.forEachOrdered(grouper);
+			if (grouper.partitions == null) {
+				return finish(grouper.groups, downstream);
+			}
+			grouper.spill();
+			grouper.closeWriters();
+			spill.seal();
+			Partition[] partitions = grouper.partitions;
+			return Arrays.stream(partitions)
+					.flatMap(partition -> this.<K, D> load(spill, partition, classifier, downstream, 0))
+					.onClose(spill::close);
+		} catch (IOException e) {
+			spill.close();
+			throw new UncheckedIOException(e);
+		} catch (RuntimeException | Error e) {
+			spill.close();
+			throw e;
+		}
+	}
+
+	private <K, D> Stream<Map.Entry<K, D>> load(SpillDirectory spill, Partition partition, Function<? super T, ? extends K> classifier,
+			Collector<? super T, ?, D> downstream, int depth) {
+		try {
+			if (partition.count == 0) {
+				spill.delete(partition.file);
+				return Stream.empty();
+			}
+			if (partition.count > maxInMemory && partition.mixed && depth < MAX_DEPTH) {
+				Partition[] children = repartition(spill, partition, classifier, depth + 1);
+				int next = children.length == 1 ? MAX_DEPTH : depth + 1;
+				return Arrays.stream(children).flatMap(child -> this.<K, D> load(spill, child, classifier, downstream, next));
+			}
+			Stream<Map.Entry<K, D>> groups = fold(partition, classifier, downstream);
+			spill.delete(partition.file);
+			return groups;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/*
+	 * Accumulates the partition per key without keeping its elements.
+	 */
+	private <K, A, D> Stream<Map.Entry<K, D>> fold(Partition partition, Function<? super T, ? extends K> classifier,
+			Collector<? super T, A, D> downstream) throws IOException {
+		Supplier<A> supplier = downstream.supplier();
+		BiConsumer<A, ? super T> accumulator = downstream.accumulator();
+		Map<K, A> groups = new HashMap<>();
+		try (DataInputStream in = SpillDirectory.reader(partition.file)) {
+			for (long i = 0; i < partition.count; i++) {
+				T t = codec.read(in);
+				accumulator.accept(groups.computeIfAbsent(classifier.apply(t), key -> supplier.get()), t);
+			}
+		}
+		Function<A, D> finisher = downstream.finisher();
+		return groups.entrySet().stream().map(group -> new AbstractMap.SimpleImmutableEntry<>(group.getKey(), finisher.apply(group.getValue())));
+	}
+
+	private <K> Partition[] repartition(SpillDirectory spill, Partition partition, Function<? super T, ? extends K> classifier, int depth)
+			throws IOException {
+		Partition[] children = new Partition[PARTITIONS];
+		try (DataInputStream in = SpillDirectory.reader(partition.file)) {
+			for (long i = 0; i < partition.count; i++) {
+				T t = codec.read(in);
+				K key = classifier.apply(t);
+				int index = partition(key, depth);
+				if (children[index] == null) {
+					children[index] = new Partition(spill.newFile());
+				}
+				children[index].write(codec, t, key);
+			}
+		} finally {
+			for (Partition child : children) {
+				if (child != null) {
+					child.close();
+				}
+			}
+		}
+		spill.delete(partition.file);
+		return Arrays.stream(children).filter(Objects::nonNull).toArray(Partition[]::new);
+	}
+
+	private static <T, K, D> Stream<Map.Entry<K, D>> finish(Map<K, List<T>> groups, Collector<? super T, ?, D> downstream) {
+		return groups.entrySet().stream()
+				.map(group -> new AbstractMap.SimpleImmutableEntry<>(group.getKey(), group.getValue().stream().collect(downstream)));
+	}
+
+	/*
+	 * A different hash per depth, so a repartitioned partition spreads over
+	 * all its children.
+	 */
+	static int partition(Object key, int depth) {
+		int h = Objects.hashCode(key) ^ depth * 0x9E3779B9;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 16;
+		return Math.floorMod(h, PARTITIONS);
+	}
+
+	private final class Grouper<K> implements Consumer<T> {
+
+		private final SpillDirectory spill;
+
+		private final Function<? super T, ? extends K> classifier;
+
+		private Map<K, List<T>> groups = new HashMap<>();
+
+		private int held;
+
+		private Partition[] partitions;
+
+		Grouper(SpillDirectory spill, Function<? super T, ? extends K> classifier) {
+			this.spill = spill;
+			this.classifier = classifier;
+		}
+
+		@Override
+		public void accept(T t) {
+			groups.computeIfAbsent(classifier.apply(t), key -> new ArrayList<>()).add(t);
+			if (++held == maxInMemory) {
+				try {
+					spill();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+
+		void spill() throws IOException {
+			if (partitions == null) {
+				partitions = new Partition[PARTITIONS];
+				for (int i = 0; i < PARTITIONS; i++) {
+					partitions[i] = new Partition(spill.newFile());
+				}
+			}
+			for (Map.Entry<K, List<T>> group : groups.entrySet()) {
+				Partition partition = partitions[partition(group.getKey(), 0)];
+				for (T t : group.getValue()) {
+					partition.write(codec, t, group.getKey());
+				}
+			}
+			groups = new HashMap<>();
+			held = 0;
+		}
+
+		void closeWriters() throws IOException {
+			for (Partition partition : partitions) {
+				partition.close();
+			}
+		}
+	}
+
+	/*
+	 * A spill file appended to while the input is read. Remembers its first
+	 * key to tell whether it holds more than one.
+	 */
+	private static final class Partition implements Closeable {
+
+		final Path file;
+
+		private DataOutputStream out;
+
+		long count;
+
+		private Object firstKey;
+
+		boolean mixed;
+
+		Partition(Path file) throws IOException {
+			this.file = file;
+			this.out = SpillDirectory.writer(file);
+		}
+
+		<T> void write(Codec<T> codec, T t, Object key) throws IOException {
+			codec.write(out, t);
+			if (count == 0) {
+				firstKey = key;
+			} else if (!mixed && !Objects.equals(firstKey, key)) {
+				mixed = true;
+				firstKey = null;
+			}
+			count++;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (out != null) {
+				out.close();
+				out = null;
+			}
+		}
+	}
+}
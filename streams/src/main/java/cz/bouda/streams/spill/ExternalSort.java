@@ -0,0 +1,197 @@
+package cz.bouda.streams.spill;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.*;
+
+/*
+ * sorted() with a memory budget of maxInMemory elements. The input is read
+ * in encounter order into a buffer; whenever the buffer is full it is sorted
+ * and written to a temporary file as a run. At the end the runs and the last
+ * buffer are merged k ways into a lazy Stream, FAN_IN runs at a time, so
+ * the heap holds one buffer while sorting and one element per run while
+ * merging. Inputs that fit the budget are sorted in memory and never touch
+ * the disk. Like sorted(), the sort is stable.
+ * 
+ * 	ExternalSort<Person> sort = new ExternalSort<>(Codecs.persons(), 1_000_000);
+ * 	try (Stream<Person> sorted = sort.sorted(persons, comparing(p -> p.age))) {
+ * 		sorted.forEach(...);
+ * 	}
+ * 
+ * Close the returned stream unless it is consumed to the end: that deletes
+ * the spill files still left.
+ */
+public class ExternalSort<T> {
+
+	static final int FAN_IN = 64;
+
+	private final Codec<T> codec;
+
+	private final int maxInMemory;
+
+	private final Path directory;
+
+	public ExternalSort(Codec<T> codec, int maxInMemory) {
+		this(codec, maxInMemory, null);
+	}
+
+	/*
+	 * Spill files go to a new directory under the given one, the default
+	 * temporary directory if null.
+	 */
+	public ExternalSort(Codec<T> codec, int maxInMemory, Path directory) {
+		if (maxInMemory < 1) {
+			throw new IllegalArgumentException("maxInMemory must be positive: " + maxInMemory);
+		}
+		this.codec = codec;
+		this.maxInMemory = maxInMemory;
+		this.directory = directory;
+	}
+
+	/*
+	 * The input is consumed with forEachOrdered, so the upstream of a
+	 * parallel source still runs in parallel, and buffers are sorted with
+	 * Arrays.parallelSort.
+	 */
+	public Stream<T> sorted(Stream<T> source, Comparator<? super T> comparator) {
+		SpillDirectory spill = new SpillDirectory(directory);
+		try {
+			Sorter sorter = new Sorter(spill, comparator, source.isParallel());
+			source.forEachOrdered(sorter);
+			return sorter.finish();
+		} catch (IOException e) {
+			spill.close();
+			throw new UncheckedIOException(e);
+		} catch (RuntimeException | Error e) {
+			spill.close();
+			throw e;
+		}
+	}
+
+	private final class Sorter implements Consumer<T> {
+
+		private final SpillDirectory spill;
+
+		private final Comparator<? super T> comparator;
+
+		private final boolean parallel;
+
+		private final List<Run> runs = new ArrayList<>();
+
+		private Object[] buffer = new Object[Math.min(maxInMemory, 1024)];
+
+		private int size;
+
+		Sorter(SpillDirectory spill, Comparator<? super T> comparator, boolean parallel) {
+			this.spill = spill;
+			this.comparator = comparator;
+			this.parallel = parallel;
+		}
+
+		@Override
+		public void accept(T t) {
+			if (size == buffer.length) {
+				if (size == maxInMemory) {
+					try {
+						runs.add(writeRun());
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				} else {
+					buffer = Arrays.copyOf(buffer, (int) Math.min(maxInMemory, 2L * buffer.length));
+				}
+			}
+			buffer[size++] = t;
+		}
+
+		Stream<T> finish() throws IOException {
+			sortBuffer();
+			if (runs.isEmpty()) {
+				@SuppressWarnings("unchecked")
+				Stream<T> sorted = (Stream<T>) Arrays.stream(buffer, 0, size);
+				return parallel ? sorted.parallel() : sorted;
+			}
+			long total = size;
+			for (Run run : runs) {
+				total += run.count;
+			}
+			while (runs.size() >= FAN_IN) {
+				mergePasses();
+			}
+
+			List<Run.Cursor<T>> cursors = cursors(runs);
+			cursors.add(new Run.ArrayCursor<>(buffer, size, runs.size()));
+			Run.Merge<T> merge = new Run.Merge<>(cursors, comparator, spill);
+			Spliterator<T> spliterator = Spliterators.spliterator(merge, total, Spliterator.ORDERED);
+			return StreamSupport.stream(spliterator, parallel).onClose(() -> {
+				try {
+					merge.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+
+		@SuppressWarnings("unchecked")
+		private void sortBuffer() {
+			T[] items = (T[]) buffer;
+			if (parallel) {
+				Arrays.parallelSort(items, 0, size, comparator);
+			} else {
+				Arrays.sort(items, 0, size, comparator);
+			}
+		}
+
+		private Run writeRun() throws IOException {
+			sortBuffer();
+			Path file = spill.newFile();
+			try (DataOutputStream out = SpillDirectory.writer(file)) {
+				for (int i = 0; i < size; i++) {
+					@SuppressWarnings("unchecked")
+					T t = (T) buffer[i];
+					codec.write(out, t);
+					buffer[i] = null;
+				}
+			}
+			Run run = new Run(file, size);
+			size = 0;
+			return run;
+		}
+
+		/*
+		 * Merges consecutive groups of FAN_IN runs into one run each, keeping
+		 * encounter order between runs for stability.
+		 */
+		private void mergePasses() throws IOException {
+			List<Run> merged = new ArrayList<>();
+			for (int from = 0; from < runs.size(); from += FAN_IN) {
+				List<Run> group = runs.subList(from, Math.min(runs.size(), from + FAN_IN));
+				if (group.size() == 1) {
+					merged.add(group.get(0));
+					continue;
+				}
+				long count = 0;
+				Path file = spill.newFile();
+				try (DataOutputStream out = SpillDirectory.writer(file); Run.Merge<T> merge = new Run.Merge<>(cursors(group), comparator, null)) {
+					while (merge.hasNext()) {
+						codec.write(out, merge.next());
+						count++;
+					}
+				}
+				merged.add(new Run(file, count));
+			}
+			runs.clear();
+			runs.addAll(merged);
+		}
+
+		private List<Run.Cursor<T>> cursors(List<Run> group) throws IOException {
+			List<Run.Cursor<T>> cursors = new ArrayList<>(group.size() + 1);
+			for (Run run : group) {
+				cursors.add(new Run.FileCursor<>(run, cursors.size(), codec));
+			}
+			return cursors;
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package cz.bouda.streams.spill;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/*
+ * A spill file of count elements, and the cursors the k-way merge reads
+ * runs through. Cursors are ordered by their head element and, for equal
+ * heads, by run index, so a merge of runs written in encounter order is
+ * stable.
+ */
+final class Run {
+
+	final Path file;
+
+	final long count;
+
+	Run(Path file, long count) {
+		this.file = file;
+		this.count = count;
+	}
+
+	abstract static class Cursor<T> implements Closeable {
+
+		final int index;
+
+		T head;
+
+		Cursor(int index) {
+			this.index = index;
+		}
+
+		/*
+		 * Moves head to the next element, false once the run is exhausted.
+		 */
+		abstract boolean advance() throws IOException;
+
+		@Override
+		public void close() throws IOException {
+		}
+	}
+
+	/*
+	 * Reads the run's file and deletes it once exhausted or closed.
+	 */
+	static final class FileCursor<T> extends Cursor<T> {
+
+		private final Run run;
+
+		private final Codec<T> codec;
+
+		private final DataInputStream in;
+
+		private long remaining;
+
+		FileCursor(Run run, int index, Codec<T> codec) throws IOException {
+			super(index);
+			this.run = run;
+			this.codec = codec;
+			this.in = SpillDirectory.reader(run.file);
+			this.remaining = run.count;
+		}
+
+		@Override
+		boolean advance() throws IOException {
+			if (remaining == 0) {
+				close();
+				return false;
+			}
+			head = codec.read(in);
+			remaining--;
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			head = null;
+			in.close();
+			Files.deleteIfExists(run.file);
+		}
+	}
+
+	static final class ArrayCursor<T> extends Cursor<T> {
+
+		private final Object[] items;
+
+		private final int end;
+
+		private int position;
+
+		ArrayCursor(Object[] items, int end, int index) {
+			super(index);
+			this.items = items;
+			this.end = end;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		boolean advance() {
+			if (position == end) {
+				head = null;
+				return false;
+			}
+			head = (T) items[position];
+			items[position++] = null;
+			return true;
+		}
+	}
+
+	/*
+	 * Lazy k-way merge of sorted cursors.
+	 */
+	static final class Merge<T> implements Iterator<T>, Closeable {
+
+		private final PriorityQueue<Cursor<T>> queue;
+
+		private final List<Cursor<T>> cursors;
+
+		private final Closeable onClose;
+
+		Merge(List<Cursor<T>> cursors, Comparator<? super T> comparator, Closeable onClose) throws IOException {
+			Comparator<Cursor<T>> byHead = (a, b) -> comparator.compare(a.head, b.head);
+			this.queue = new PriorityQueue<>(Math.max(1, cursors.size()), byHead.thenComparingInt(c -> c.index));
+			this.cursors = cursors;
+			this.onClose = onClose;
+			for (Cursor<T> cursor : cursors) {
+				if (cursor.advance()) {
+					queue.add(cursor);
+				}
+			}
+			if (queue.isEmpty()) {
+				close();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !queue.isEmpty();
+		}
+
+		@Override
+		public T next() {
+			Cursor<T> cursor = queue.poll();
+			if (cursor == null) {
+				throw new NoSuchElementException();
+			}
+			T value = cursor.head;
+			try {
+				if (cursor.advance()) {
+					queue.add(cursor);
+				} else if (queue.isEmpty()) {
+					close();
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return value;
+		}
+
+		@Override
+		public void close() throws IOException {
+			queue.clear();
+			for (Cursor<T> cursor : cursors) {
+				cursor.close();
+			}
+			if (onClose != null) {
+				onClose.close();
+			}
+		}
+	}
+}
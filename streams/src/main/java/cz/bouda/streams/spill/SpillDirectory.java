@@ -0,0 +1,86 @@
+package cz.bouda.streams.spill;
+
+import java.io.*;
+import java.nio.file.*;
+
+/*
+ * Temporary directory holding the spill files of one sort or grouping. It is
+ * created on the first spill, so inputs that fit the budget never touch the
+ * disk, and deleted with everything in it on close, or once it is sealed and
+ * its last file has been deleted.
+ */
+final class SpillDirectory implements Closeable {
+
+	private static final int BUFFER = 1 << 16;
+
+	private final Path parent;
+
+	private Path directory;
+
+	private int files;
+
+	private int live;
+
+	private boolean sealed;
+
+	SpillDirectory(Path parent) {
+		this.parent = parent;
+	}
+
+	Path newFile() throws IOException {
+		if (directory == null) {
+			directory = parent == null ? Files.createTempDirectory("spill") : Files.createTempDirectory(parent, "spill");
+		}
+		live++;
+		return Files.createFile(directory.resolve("spill-" + files++));
+	}
+
+	void delete(Path file) throws IOException {
+		if (Files.deleteIfExists(file) && --live == 0 && sealed) {
+			close();
+		}
+	}
+
+	/*
+	 * The input has been consumed. Files may still replace deleted ones, but
+	 * the directory goes away with its last file.
+	 */
+	void seal() {
+		sealed = true;
+		if (live == 0) {
+			close();
+		}
+	}
+
+	int getFiles() {
+		return files;
+	}
+
+	static DataOutputStream writer(Path file) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER));
+	}
+
+	static DataInputStream reader(Path file) throws IOException {
+		return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER));
+	}
+
+	@Override
+	public void close() {
+		if (directory == null) {
+			return;
+		}
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+			for (Path entry : entries) {
+				Files.deleteIfExists(entry);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		try {
+			Files.deleteIfExists(directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		directory = null;
+	}
+}
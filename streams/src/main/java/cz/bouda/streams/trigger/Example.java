@@ -0,0 +1,39 @@
+package cz.bouda.streams.trigger;
+
+/*
+ * One runnable example method with its description.
+ */
+public class Example {
+
+	@FunctionalInterface
+	public interface Invoker {
+		void invoke() throws Exception;
+	}
+
+	private final String name;
+
+	private final String description;
+
+	private final Invoker invoker;
+
+	public Example(String name, String description, Invoker invoker) {
+		this.name = name;
+		this.description = description;
+		this.invoker = invoker;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/*
+	 * The @Description value, or the method name without one.
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	public void invoke() throws Exception {
+		invoker.invoke();
+	}
+}
@@ -0,0 +1,12 @@
+package cz.bouda.streams.trigger;
+
+import java.util.List;
+
+/*
+ * Implemented by the generated <Class>_Examples registries.
+ */
+public interface ExampleSet {
+
+	List<Example> examples();
+
+}
@@ -0,0 +1,15 @@
+package cz.bouda.streams.trigger;
+
+import java.lang.annotation.*;
+
+/*
+ * Marks a class whose static no-argument methods are examples for Trigger.
+ * At build time the examples processor generates <Class>_Examples, a
+ * registry invoking them directly in declaration order, so Trigger does not
+ * have to scan and invoke them reflectively.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Examples {
+
+}
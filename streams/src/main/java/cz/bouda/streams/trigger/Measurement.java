@@ -0,0 +1,72 @@
+package cz.bouda.streams.trigger;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/*
+ * Configuration of a measured Trigger run. Measuring is switched on either
+ * programmatically or from the command line:
+ * 
+ * 	-Dtrigger.warmup=5 -Dtrigger.iterations=20 -Dtrigger.report=target/trigger
+ * 
+ * Without trigger.iterations the examples are just executed once, as before.
+ */
+public class Measurement {
+
+	public static final String WARMUP = "trigger.warmup";
+	public static final String ITERATIONS = "trigger.iterations";
+	public static final String REPORT = "trigger.report";
+
+	private int warmup = 3;
+
+	private int iterations = 10;
+
+	private Path reportDir;
+
+	public static Measurement fromSystemProperties() {
+		if (System.getProperty(ITERATIONS) == null) {
+			return null;
+		}
+		Measurement measurement = new Measurement()
+				.iterations(Integer.getInteger(ITERATIONS))
+				.warmup(Integer.getInteger(WARMUP, 3));
+		String report = System.getProperty(REPORT);
+		if (report != null) {
+			measurement.reportDir(Paths.get(report));
+		}
+		return measurement;
+	}
+
+	public Measurement warmup(int warmup) {
+		if (warmup < 0) {
+			throw new IllegalArgumentException("warmup must not be negative: " + warmup);
+		}
+		this.warmup = warmup;
+		return this;
+	}
+
+	public Measurement iterations(int iterations) {
+		if (iterations < 1) {
+			throw new IllegalArgumentException("iterations must be positive: " + iterations);
+		}
+		this.iterations = iterations;
+		return this;
+	}
+
+	public Measurement reportDir(Path reportDir) {
+		this.reportDir = reportDir;
+		return this;
+	}
+
+	public int getWarmup() {
+		return warmup;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public Path getReportDir() {
+		return reportDir;
+	}
+}
@@ -0,0 +1,81 @@
+package cz.bouda.streams.trigger;
+
+/*
+ * Result of the measured iterations of one example method. Times are in
+ * nanoseconds, allocations in bytes, both per iteration. Allocation and GC
+ * figures cover all threads, so work done in the common ForkJoinPool is
+ * included.
+ */
+public class MethodReport {
+
+	private final String className;
+	private final String method;
+	private final String description;
+	private final int iterations;
+	private final long minNanos;
+	private final long maxNanos;
+	private final long totalNanos;
+	private final long allocatedBytes;
+	private final long gcCount;
+	private final long gcMillis;
+
+	public MethodReport(String className, String method, String description, int iterations, long minNanos, long maxNanos, long totalNanos,
+			long allocatedBytes, long gcCount, long gcMillis) {
+		this.className = className;
+		this.method = method;
+		this.description = description;
+		this.iterations = iterations;
+		this.minNanos = minNanos;
+		this.maxNanos = maxNanos;
+		this.totalNanos = totalNanos;
+		this.allocatedBytes = allocatedBytes;
+		this.gcCount = gcCount;
+		this.gcMillis = gcMillis;
+	}
+
+	public String getClassName() {
+		return className;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public long getMinNanos() {
+		return minNanos;
+	}
+
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	public long getAvgNanos() {
+		return totalNanos / iterations;
+	}
+
+	public long getAllocatedBytesPerIteration() {
+		return allocatedBytes < 0 ? -1 : allocatedBytes / iterations;
+	}
+
+	public long getGcCount() {
+		return gcCount;
+	}
+
+	public long getGcMillis() {
+		return gcMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: avg=%dns min=%dns max=%dns alloc=%dB/op gc=%d (%dms)", method, getAvgNanos(), minNanos, maxNanos,
+				getAllocatedBytesPerIteration(), gcCount, gcMillis);
+	}
+}
@@ -0,0 +1,94 @@
+package cz.bouda.streams.trigger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+
+/*
+ * Writes method reports as JSON and CSV, one row per method in a stable
+ * order, so that the files of two builds can be diffed.
+ */
+public class Reports {
+
+	private static final String CSV_HEADER = "class,method,description,iterations,avgNanos,minNanos,maxNanos,allocatedBytesPerOp,gcCount,gcMillis";
+
+	private Reports() {
+	}
+
+	public static void write(Path dir, String name, List<MethodReport> reports) throws IOException {
+		Files.createDirectories(dir);
+		try (Writer writer = Files.newBufferedWriter(dir.resolve(name + ".json"), StandardCharsets.UTF_8)) {
+			writeJson(writer, reports);
+		}
+		try (Writer writer = Files.newBufferedWriter(dir.resolve(name + ".csv"), StandardCharsets.UTF_8)) {
+			writeCsv(writer, reports);
+		}
+	}
+
+	public static void writeJson(Writer writer, List<MethodReport> reports) throws IOException {
+		writer.write("[\n");
+		for (int i = 0; i < reports.size(); i++) {
+			MethodReport r = reports.get(i);
+			writer.write("  {");
+			writer.write("\"class\": " + quoteJson(r.getClassName()));
+			writer.write(", \"method\": " + quoteJson(r.getMethod()));
+			writer.write(", \"description\": " + quoteJson(r.getDescription()));
+			writer.write(", \"iterations\": " + r.getIterations());
+			writer.write(", \"avgNanos\": " + r.getAvgNanos());
+			writer.write(", \"minNanos\": " + r.getMinNanos());
+			writer.write(", \"maxNanos\": " + r.getMaxNanos());
+			writer.write(", \"allocatedBytesPerOp\": " + r.getAllocatedBytesPerIteration());
+			writer.write(", \"gcCount\": " + r.getGcCount());
+			writer.write(", \"gcMillis\": " + r.getGcMillis());
+			writer.write(i < reports.size() - 1 ? "},\n" : "}\n");
+		}
+		writer.write("]\n");
+	}
+
+	public static void writeCsv(Writer writer, List<MethodReport> reports) throws IOException {
+		writer.write(CSV_HEADER);
+		writer.write('\n');
+		for (MethodReport r : reports) {
+			writer.write(String.join(",", quoteCsv(r.getClassName()), quoteCsv(r.getMethod()), quoteCsv(r.getDescription()),
+					String.valueOf(r.getIterations()), String.valueOf(r.getAvgNanos()), String.valueOf(r.getMinNanos()),
+					String.valueOf(r.getMaxNanos()), String.valueOf(r.getAllocatedBytesPerIteration()), String.valueOf(r.getGcCount()),
+					String.valueOf(r.getGcMillis())));
+			writer.write('\n');
+		}
+	}
+
+	private static String quoteJson(String value) {
+		StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+		for (char c : value.toCharArray()) {
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	private static String quoteCsv(String value) {
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+}
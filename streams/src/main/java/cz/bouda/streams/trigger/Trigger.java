@@ -1,29 +1,178 @@
 package cz.bouda.streams.trigger;
 
+import java.io.*;
+import java.lang.management.*;
 import java.lang.reflect.*;
+import java.util.*;
 
 import org.apache.commons.lang3.StringUtils;
 
 public class Trigger {
 
 	public static void run(Class<?> clazz) {
-		Method[] methods = clazz.getDeclaredMethods();
-		for (Method method : methods) {
-			if (!StringUtils.equals("main", method.getName()) && !StringUtils.startsWith(method.getName(), "lambda")) {
-				if (method.isAnnotationPresent(Description.class)) {
-					Description description = method.getDeclaredAnnotation(Description.class);
-					System.out.println("\n --- " + description.value());
-				} else {
-					System.out.println("\n --- " + method.getName());
+		Measurement measurement = Measurement.fromSystemProperties();
+		if (measurement != null) {
+			measure(clazz, measurement);
+			return;
+		}
+
+		for (Example example : examples(clazz)) {
+			System.out.println("\n --- " + example.getDescription());
+
+			try {
+				example.invoke();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/*
+	 * Runs every example of the class warmup + iterations times. The console
+	 * output of the examples is swallowed while measuring, only the reports are
+	 * printed and, if a report directory is configured, written as JSON and
+	 * CSV named after the class.
+	 */
+	public static List<MethodReport> measure(Class<?> clazz, Measurement measurement) {
+		List<Example> examples = new ArrayList<>(examples(clazz));
+		examples.sort(Comparator.comparing(Example::getName));
+
+		List<MethodReport> reports = new ArrayList<>();
+		PrintStream out = System.out;
+		try {
+			System.setOut(new PrintStream(new OutputStream() {
+				@Override
+				public void write(int b) {
 				}
 
-				try {
-					method.invoke(clazz);
-				} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-					e.printStackTrace();
+				@Override
+				public void write(byte[] b, int off, int len) {
 				}
+			}));
+			for (Example example : examples) {
+				reports.add(measure(clazz, example, measurement));
+			}
+		} finally {
+			System.setOut(out);
+		}
+
+		reports.forEach(System.out::println);
+		if (measurement.getReportDir() != null) {
+			try {
+				Reports.write(measurement.getReportDir(), clazz.getSimpleName(), reports);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return reports;
+	}
+
+	private static MethodReport measure(Class<?> clazz, Example example, Measurement measurement) {
+		try {
+			for (int i = 0; i < measurement.getWarmup(); i++) {
+				example.invoke();
+			}
+
+			long min = Long.MAX_VALUE;
+			long max = 0;
+			long total = 0;
+			long allocatedBefore = allocatedBytes();
+			long gcCountBefore = gcCount();
+			long gcTimeBefore = gcTime();
+			for (int i = 0; i < measurement.getIterations(); i++) {
+				long start = System.nanoTime();
+				example.invoke();
+				long elapsed = System.nanoTime() - start;
+				min = Math.min(min, elapsed);
+				max = Math.max(max, elapsed);
+				total += elapsed;
+			}
+			long allocatedAfter = allocatedBytes();
+
+			return new MethodReport(clazz.getName(), example.getName(), example.getDescription(), measurement.getIterations(), min, max, total,
+					allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore, gcCount() - gcCountBefore, gcTime() - gcTimeBefore);
+		} catch (Exception e) {
+			throw new IllegalStateException("Example " + example.getName() + " failed", e);
+		}
+	}
+
+	/*
+	 * The registry generated for @Examples classes, in declaration order.
+	 * Classes without one are scanned reflectively, in the order the JVM
+	 * happens to return their methods.
+	 */
+	private static List<Example> examples(Class<?> clazz) {
+		try {
+			Class<?> registry = Class.forName(clazz.getName() + "_Examples", true, clazz.getClassLoader());
+			return ((ExampleSet) registry.getDeclaredConstructor().newInstance()).examples();
+		} catch (ClassNotFoundException e) {
+			return scan(clazz);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot load examples of " + clazz.getName(), e);
+		}
+	}
+
+	private static List<Example> scan(Class<?> clazz) {
+		List<Example> examples = new ArrayList<>();
+		for (Method method : clazz.getDeclaredMethods()) {
+			if (!StringUtils.equals("main", method.getName()) && !StringUtils.startsWith(method.getName(), "lambda")) {
+				method.setAccessible(true);
+				examples.add(new Example(method.getName(), describe(method), () -> {
+					try {
+						method.invoke(clazz);
+					} catch (InvocationTargetException e) {
+						throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+					}
+				}));
 			}
 		}
+		return examples;
+	}
+
+	private static String describe(Method method) {
+		if (method.isAnnotationPresent(Description.class)) {
+			return method.getDeclaredAnnotation(Description.class).value();
+		}
+		return method.getName();
+	}
+
+	/*
+	 * Sum over all live threads, -1 when the JVM does not support allocation
+	 * counting. Threads that die between two samples drop out of the sum, which
+	 * is fine for the long-lived ForkJoinPool workers the examples use.
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return -1;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+			return -1;
+		}
+		long total = 0;
+		for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+			if (allocated > 0) {
+				total += allocated;
+			}
+		}
+		return total;
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(0, gc.getCollectionTime());
+		}
+		return time;
 	}
 
 }